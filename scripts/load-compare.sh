@@ -0,0 +1,25 @@
+#!/usr/bin/env bash
+# Compares the servlet and the reactive deployment mode under the same closed-loop load of POST /translate
+# against the loopback engine (1 s simulated engine latency), see scripts/LoadTest.java.
+#
+# Usage: scripts/load-compare.sh [concurrency] [seconds] (after ./gradlew bootJar)
+set -euo pipefail
+
+CONCURRENCY=${1:-250}
+SECONDS_PER_MODE=${2:-20}
+PORT=${PORT:-18080}
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR=$(ls -t "$ROOT"/build/libs/*.jar | grep -v plain | head -1)
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+for mode in servlet reactive; do
+  "$JAVA" -jar "$JAR" --server.port="$PORT" --spring.main.web-application-type="$mode" --logging.level.root=WARN >/dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null -X POST -H 'Content-Type: application/json' -d '{}' "http://localhost:$PORT/status"; do
+    sleep 0.1
+  done
+  printf '%-8s ' "$mode"
+  "$JAVA" "$ROOT/scripts/LoadTest.java" "http://localhost:$PORT/translate" "$CONCURRENCY" "$SECONDS_PER_MODE"
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+done
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Measures the time from the JVM launch to the first successful POST /status for the startup modes:
+#   plain   - java -jar
+#   aot     - Spring AOT-processed application context
+#   aot-cds - Spring AOT and the class-data-sharing archive from the training run
+#
+# Usage: scripts/measure-startup.sh [runs per mode] (after ./gradlew cdsArchive -PfastStartup)
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+DIR="$(cd "$(dirname "$0")/.." && pwd)/build/fast-startup"
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+if [[ ! -f "$DIR/app.jsa" ]]; then
+  echo "Missing $DIR/app.jsa, run ./gradlew cdsArchive -PfastStartup first" >&2
+  exit 1
+fi
+
+declare -A MODES=(
+  [plain]=""
+  [aot]="-Dspring.aot.enabled=true"
+  [aot-cds]="-XX:SharedArchiveFile=app.jsa -Xlog:cds=off -Dspring.aot.enabled=true"
+)
+
+measure() {
+  local options=$1
+  local start end pid
+  start=$(date +%s%N)
+  (cd "$DIR" && exec "$JAVA" $options -jar app.jar --server.port="$PORT" --logging.level.root=WARN) >/dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null -X POST -H 'Content-Type: application/json' -d '{}' "http://localhost:$PORT/status"; do
+    sleep 0.01
+  done
+  end=$(date +%s%N)
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo $(( (end - start) / 1000000 ))
+}
+
+for mode in plain aot aot-cds; do
+  times=()
+  for ((run = 0; run < RUNS; run++)); do
+    times+=("$(measure "${MODES[$mode]}")")
+  done
+  sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+  printf '%-8s median %5d ms   runs: %s\n' "$mode" "${sorted[$((RUNS / 2))]}" "${times[*]}"
+done
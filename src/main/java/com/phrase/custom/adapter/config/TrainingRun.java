@@ -0,0 +1,114 @@
+package com.phrase.custom.adapter.config;
+
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.LanguagesRequest;
+import com.phrase.custom.adapter.dto.request.StatusRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.RUNNING;
+import static java.lang.Thread.sleep;
+
+/**
+ * Exercises all the endpoints against the loopback engine once the application is ready and exits afterwards.
+ * <p>
+ * It is the training run of the fast-startup build ({@code adapter.training-run=true}): started with
+ * {@code -XX:ArchiveClassesAtExit}, the JVM dumps all the classes loaded while serving real requests
+ * (Jackson, Tomcat, the controllers and the services) into the class-data-sharing archive.
+ * <p>
+ * The requests carry no credentials, the training run is started with the authentication disabled
+ * ({@code --adapter.auth.api-keys= --adapter.auth.hmac-secret=}), whatever the packaged configuration says.
+ * <p>
+ * The whole run is bounded by {@code adapter.training-timeout}: a request or an async job hanging past it fails
+ * the run with a non-zero exit code instead of holding the build until its own deadline.
+ */
+@Component
+public class TrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final Logger logger = LoggerFactory.getLogger(TrainingRun.class);
+
+    private final boolean enabled;
+
+    private final Duration timeout;
+
+    public TrainingRun(
+            @Value("${adapter.training-run:false}") boolean enabled,
+            @Value("${adapter.training-timeout:PT2M}") Duration timeout
+    ) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!enabled || !(event.getApplicationContext() instanceof WebServerApplicationContext context)) {
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                    .connectTimeout(timeout)
+                    .build());
+            requestFactory.setReadTimeout(timeout);
+            train(RestClient.builder()
+                    .baseUrl("http://localhost:%d".formatted(context.getWebServer().getPort()))
+                    .requestFactory(requestFactory)
+                    .build(), Instant.now().plus(timeout));
+            logger.info("Training run completed");
+        } catch (Exception e) {
+            logger.error("Training run failed", e);
+            exitCode = 1;
+        }
+
+        int finalExitCode = exitCode;
+        System.exit(SpringApplication.exit(context, () -> finalExitCode));
+    }
+
+    private void train(RestClient restClient, Instant deadline) throws InterruptedException {
+        TranslateRequest translateRequest = new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(
+                        new TranslateRequest.Segment("1", "Hello <b>{name}</b>", Map.of("origin", "training")),
+                        new TranslateRequest.Segment("2", "https://phrase.com", null)
+                ),
+                null,
+                Map.of("tenant", "training")
+        );
+
+        restClient.post().uri("/status").body(new StatusRequest(null)).retrieve().toBodilessEntity();
+        restClient.post().uri("/languages").body(new LanguagesRequest(null)).retrieve().toBodilessEntity();
+        restClient.post().uri("/translate").body(translateRequest).retrieve().body(TranslateResponse.class);
+
+        String jobId = restClient.post().uri("/translateAsync").body(translateRequest).retrieve().body(TranslateAsyncResponse.class).id();
+        TranslateAsyncStatusResponse status;
+        do {
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException("Async job %s still running after %s".formatted(jobId, timeout));
+            }
+            sleep(100);
+            status = restClient.get().uri("/translateAsyncStatus/{jobId}", jobId).retrieve().body(TranslateAsyncStatusResponse.class);
+        } while (status.status() == RUNNING);
+        restClient.get().uri("/translateAsyncResult/{jobId}", jobId).retrieve().body(TranslateResponse.class);
+    }
+
+}
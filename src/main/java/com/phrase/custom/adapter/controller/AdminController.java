@@ -0,0 +1,42 @@
+package com.phrase.custom.adapter.controller;
+
+import com.phrase.custom.adapter.dto.response.SlowRequestsResponse;
+import com.phrase.custom.adapter.dto.response.UsageResponse;
+import com.phrase.custom.adapter.service.CharacterBudget;
+import com.phrase.custom.adapter.tracing.SlowRequestLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Operational endpoints of the adapter, not called by Phrase.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    private CharacterBudget characterBudget;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @GetMapping("/usage")
+    public ResponseEntity<UsageResponse> usage() {
+        // Engine characters used per tenant, engine api key and engine in the current budget window, the limit is per tenant and engine
+
+        UsageResponse usageResponse = new UsageResponse(characterBudget.getUsages());
+        return ResponseEntity.ok(usageResponse);
+    }
+
+    @GetMapping("/slowRequests")
+    public ResponseEntity<SlowRequestsResponse> slowRequests() {
+        // Phase breakdowns of the slowest requests since the start, empty unless adapter.tracing.enabled is set
+
+        SlowRequestsResponse slowRequestsResponse = new SlowRequestsResponse(slowRequestLog.getSlowest());
+        return ResponseEntity.ok(slowRequestsResponse);
+    }
+
+}
@@ -1,7 +1,5 @@
 package com.phrase.custom.adapter.controller;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.phrase.custom.adapter.dto.Locale;
 import com.phrase.custom.adapter.dto.request.LanguagesRequest;
 import com.phrase.custom.adapter.dto.request.StatusRequest;
@@ -12,38 +10,35 @@ import com.phrase.custom.adapter.dto.response.LanguagesResponse.LanguagePair;
 import com.phrase.custom.adapter.dto.response.StatusResponse;
 import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
 import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
-import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus;
 import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.service.AsyncJobRegistry;
+import com.phrase.custom.adapter.service.ClusterRouter;
+import com.phrase.custom.adapter.service.DrainCoordinator;
+import com.phrase.custom.adapter.service.ForwardedErrorException;
+import com.phrase.custom.adapter.service.QuotaExceededException;
 import com.phrase.custom.adapter.service.TranslationService;
 import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import com.phrase.custom.adapter.tracing.RequestTrace;
 import jakarta.servlet.http.HttpServletRequest;
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.TimeUnit;
 
-import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.DONE;
-import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.FAILED;
-import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.RUNNING;
 import static com.phrase.custom.adapter.util.SmartMasker.mask;
-import static java.util.Collections.list;
-import static java.util.Objects.isNull;
-import static java.util.Objects.nonNull;
-import static java.util.stream.Collectors.joining;
 import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 /**
@@ -60,68 +55,68 @@ import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
  */
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class Controller {
 
     private final Logger logger = LoggerFactory.getLogger(Controller.class);
 
-    private static final Cache<@NotNull String, CompletableFuture<AsyncJobResult>> asyncJobCache =
-            Caffeine.newBuilder()
-                    .expireAfterWrite(35, TimeUnit.MINUTES)
-                    .build();
-
     @Autowired
     private TranslationService translationService;
 
+    @Autowired
+    private AsyncJobRegistry asyncJobRegistry;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private DrainCoordinator drainCoordinator;
+
     @PostMapping("/languages")
-    public ResponseEntity<LanguagesResponse> languages(@RequestBody LanguagesRequest languagesRequest, HttpServletRequest request) {
+    public ResponseEntity<LanguagesResponse> languages(@RequestBody LanguagesRequest languagesRequest) {
         logger.info("Languages request: {}", mask(languagesRequest));
-        processHeaders(request);
-
-        // Note that if your supported set is large (maybe even ALL the codes in the Locale enum),
-        // the cartesian product would produce a very large response, >100MB
-        // In that case please use just the top codes such as "en" for all the "en_gb", "en_us", etc. variants
-        // Phrase interprets the top codes as including all the sub-locales
-        // That way the size will be much smaller and manageable
-        LanguagesResponse languagesResponse = new LanguagesResponse(List.of(
-                new LanguagePair(new Locale("en"), new Locale("de")),
-                new LanguagePair(new Locale("en"), new Locale("cs")),
-                new LanguagePair(new Locale("en"), new Locale("fr")),
-                new LanguagePair(new Locale("en"), new Locale("es")),
-                new LanguagePair(new Locale("en"), new Locale("zh_tw"))
-        ));
 
+        LanguagesResponse languagesResponse = getLanguagesResponse();
         return ResponseEntity.ok(languagesResponse);
     }
 
     @PostMapping("/status")
-    public ResponseEntity<StatusResponse> status(@RequestBody StatusRequest statusRequest, HttpServletRequest request) {
+    public ResponseEntity<StatusResponse> status(@RequestBody StatusRequest statusRequest) {
         logger.info("Status request: {}", mask(statusRequest));
-        processHeaders(request);
 
         // If the engine isn't fully ready, return NOT_OK
+        // The adapter shutting down is not ready either, Phrase sends the work elsewhere
 
-        StatusResponse statusResponse = new StatusResponse(StatusResponse.Status.OK);
+        StatusResponse statusResponse = new StatusResponse(drainCoordinator.isDraining() ? StatusResponse.Status.NOT_OK : StatusResponse.Status.OK);
         return ResponseEntity.ok(statusResponse);
     }
 
     @PostMapping("/translate")
-    public ResponseEntity<TranslateResponse> translate(@RequestBody TranslateRequest translateRequest, HttpServletRequest request) {
+    public ResponseEntity<TranslateResponse> translate(@RequestBody TranslateRequest translateRequest) {
+        long phaseStart = RequestTrace.start();
         logger.info("Translate request: {}", mask(translateRequest));
-        processHeaders(request);
+        RequestTrace.end("log", phaseStart);
 
         // Call your engine here via the translation service
         // Please make sure to be able to handle up to 500 segments
 
-        TranslateResponse translateResponse = translationService.translate(translateRequest);
-        return ResponseEntity.ok(translateResponse);
+        drainCoordinator.requestStarted();
+        try {
+            TranslateResponse translateResponse = translationService.translate(translateRequest);
+            return ResponseEntity.ok(translateResponse);
+        } finally {
+            drainCoordinator.requestFinished();
+        }
     }
 
     @PostMapping("/translateAsync")
-    public ResponseEntity<TranslateAsyncResponse> translateAsync(@RequestBody TranslateRequest translateRequest, HttpServletRequest request) {
+    public ResponseEntity<TranslateAsyncResponse> translateAsync(@RequestBody TranslateRequest translateRequest) {
+        long phaseStart = RequestTrace.start();
         logger.info("Translate async request: {}", mask(translateRequest));
-        processHeaders(request);
+        RequestTrace.end("log", phaseStart);
 
-        String jobId = UUID.randomUUID().toString();
+        drainCoordinator.checkAcceptingJobs();
+        String jobId = clusterRouter.newJobId();
         logger.info("Starting jobId: '{}'", jobId);
 
         // Call your engine via the translation service - start the asynchronous translation
@@ -134,77 +129,88 @@ public class Controller {
         // and separated by the jobId
 
         CompletableFuture<AsyncJobResult> future = translationService.translateAsync(translateRequest);
-        asyncJobCache.put(jobId, future);
+        asyncJobRegistry.register(jobId, future);
 
         TranslateAsyncResponse translateAsyncResponse = new TranslateAsyncResponse(jobId);
         return ResponseEntity.ok(translateAsyncResponse);
     }
 
     @GetMapping("/translateAsyncStatus/{jobId}")
-    public ResponseEntity<TranslateAsyncStatusResponse> translateAsyncStatus(@PathVariable String jobId, HttpServletRequest request) throws ExecutionException, InterruptedException {
+    public ResponseEntity<TranslateAsyncStatusResponse> translateAsyncStatus(@PathVariable String jobId, HttpServletRequest request) {
         logger.info("Translate async status request: {}", jobId);
-        processHeaders(request);
 
         // Report the progress of the translation job
 
-        CompletableFuture<AsyncJobResult> cacheRecord = getJobCacheRecord(jobId);
-
-        AsyncStatus status = RUNNING;
-        String detail = "no detail";
-        if (cacheRecord.isDone()) {
-            AsyncJobResult asyncJobResult = cacheRecord.get();
-            if (nonNull(asyncJobResult) && nonNull(asyncJobResult.translateResponse())) {
-                status = DONE;
-                detail = "completed successfully";
-            } else {
-                status = FAILED;
-                if (nonNull(asyncJobResult)) {
-                    detail = asyncJobResult.failureDetail(); // Make sure the failure detail is filled out as it gets propagated to the UI and is useful for debugging
-                }
-            }
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateAsyncStatusResponse.class);
         }
-        TranslateAsyncStatusResponse translateAsyncStatusResponse = new TranslateAsyncStatusResponse(status, detail);
 
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
+
+        TranslateAsyncStatusResponse translateAsyncStatusResponse = AsyncJobRegistry.getStatusResponse(cacheRecord);
         return ResponseEntity.ok(translateAsyncStatusResponse);
     }
 
     @GetMapping("/translateAsyncResult/{jobId}")
     public ResponseEntity<TranslateResponse> translateAsyncResult(@PathVariable String jobId, HttpServletRequest request) throws ExecutionException, InterruptedException {
         logger.info("Translate async result request: {}", jobId);
-        processHeaders(request);
 
         // Consider verifying the owner of the job to prevent data theft if dealing with sensitive data
 
-        CompletableFuture<AsyncJobResult> cacheRecord = getJobCacheRecord(jobId);
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateResponse.class);
+        }
+
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
 
-        TranslateResponse translateResponse = cacheRecord.get().translateResponse();
+        TranslateResponse translateResponse = cacheRecord.exceptionally(AsyncJobResult::failed).get().translateResponse();
         return ResponseEntity.ok(translateResponse);
     }
 
-    private void processHeaders(HttpServletRequest request) {
-        // Can authenticate here, throw an exception when not authenticated
-        boolean authenticated = true;
-        if (!authenticated) {
-            throw new IllegalStateException("Not authenticated");
+    @DeleteMapping("/translateAsync/{jobId}")
+    public ResponseEntity<TranslateAsyncStatusResponse> cancelTranslateAsync(@PathVariable String jobId, HttpServletRequest request) {
+        logger.info("Cancel translate async request: {}", jobId);
+
+        // Not part of the Phrase BYO API, lets you stop an unwanted job and free its capacity right away
+        // A job that has already finished keeps its status
+
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateAsyncStatusResponse.class);
         }
 
-        String headers = list(request.getHeaderNames())
-                .stream()
-                .flatMap(headerName ->
-                        list(request.getHeaders(headerName))
-                                .stream()
-                                .map(headerValue -> "%s: %s".formatted(headerName, headerValue))
-                ).collect(joining(", "));
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
+        asyncJobRegistry.cancel(jobId);
 
-        logger.info("Http headers: {}", headers);
+        TranslateAsyncStatusResponse translateAsyncStatusResponse = AsyncJobRegistry.getStatusResponse(cacheRecord);
+        return ResponseEntity.ok(translateAsyncStatusResponse);
     }
 
-    private CompletableFuture<AsyncJobResult> getJobCacheRecord(String jobId) {
-        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobCache.getIfPresent(jobId);
-        if (isNull(cacheRecord)) {
-            throw new IllegalStateException("No translation job found with id '%s'".formatted(jobId));
-        }
-        return cacheRecord;
+    static LanguagesResponse getLanguagesResponse() {
+        // Note that if your supported set is large (maybe even ALL the codes in the Locale enum),
+        // the cartesian product would produce a very large response, >100MB
+        // In that case please use just the top codes such as "en" for all the "en_gb", "en_us", etc. variants
+        // Phrase interprets the top codes as including all the sub-locales
+        // That way the size will be much smaller and manageable
+        return new LanguagesResponse(List.of(
+                new LanguagePair(new Locale("en"), new Locale("de")),
+                new LanguagePair(new Locale("en"), new Locale("cs")),
+                new LanguagePair(new Locale("en"), new Locale("fr")),
+                new LanguagePair(new Locale("en"), new Locale("es")),
+                new LanguagePair(new Locale("en"), new Locale("zh_tw"))
+        ));
+    }
+
+    @ExceptionHandler(ForwardedErrorException.class)
+    public ResponseEntity<byte[]> handleForwardedErrors(ForwardedErrorException exception) {
+        // The error of the node owning the job, e.g. an unknown job or an exceeded quota
+        return exception.toResponseEntity();
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleQuotaExceededErrors(Exception exception) {
+        // Backoff & retry in the next budget window
+        ErrorResponse errorResponse = new ErrorResponse("Quota exceeded: %s".formatted(exception.getMessage()));
+        return new ResponseEntity<>(errorResponse, TOO_MANY_REQUESTS);
     }
 
     @ExceptionHandler(RejectedExecutionException.class)
@@ -0,0 +1,173 @@
+package com.phrase.custom.adapter.controller;
+
+import com.phrase.custom.adapter.dto.request.LanguagesRequest;
+import com.phrase.custom.adapter.dto.request.StatusRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.response.ErrorResponse;
+import com.phrase.custom.adapter.dto.response.LanguagesResponse;
+import com.phrase.custom.adapter.dto.response.StatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.service.AsyncJobRegistry;
+import com.phrase.custom.adapter.service.ClusterRouter;
+import com.phrase.custom.adapter.service.DrainCoordinator;
+import com.phrase.custom.adapter.service.ForwardedErrorException;
+import com.phrase.custom.adapter.service.QuotaExceededException;
+import com.phrase.custom.adapter.service.ReactiveTranslationService;
+import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.phrase.custom.adapter.util.SmartMasker.mask;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * The reactive counterpart of {@link Controller} with the same endpoints and DTOs, selected by
+ * {@code spring.main.web-application-type=reactive}. It runs on Netty and no thread waits for the engine.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveController {
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveController.class);
+
+    @Autowired
+    private ReactiveTranslationService reactiveTranslationService;
+
+    @Autowired
+    private AsyncJobRegistry asyncJobRegistry;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private DrainCoordinator drainCoordinator;
+
+    @PostMapping("/languages")
+    public ResponseEntity<LanguagesResponse> languages(@RequestBody LanguagesRequest languagesRequest) {
+        logger.info("Languages request: {}", mask(languagesRequest));
+
+        LanguagesResponse languagesResponse = Controller.getLanguagesResponse();
+        return ResponseEntity.ok(languagesResponse);
+    }
+
+    @PostMapping("/status")
+    public ResponseEntity<StatusResponse> status(@RequestBody StatusRequest statusRequest) {
+        logger.info("Status request: {}", mask(statusRequest));
+
+        StatusResponse statusResponse = new StatusResponse(drainCoordinator.isDraining() ? StatusResponse.Status.NOT_OK : StatusResponse.Status.OK);
+        return ResponseEntity.ok(statusResponse);
+    }
+
+    @PostMapping("/translate")
+    public Mono<ResponseEntity<TranslateResponse>> translate(@RequestBody TranslateRequest translateRequest) {
+        logger.info("Translate request: {}", mask(translateRequest));
+
+        return Mono.defer(() -> {
+            drainCoordinator.requestStarted();
+            return reactiveTranslationService.translate(translateRequest).map(ResponseEntity::ok)
+                    .doFinally(signal -> drainCoordinator.requestFinished());
+        });
+    }
+
+    @PostMapping("/translateAsync")
+    public ResponseEntity<TranslateAsyncResponse> translateAsync(@RequestBody TranslateRequest translateRequest) {
+        logger.info("Translate async request: {}", mask(translateRequest));
+
+        drainCoordinator.checkAcceptingJobs();
+        String jobId = clusterRouter.newJobId();
+        logger.info("Starting jobId: '{}'", jobId);
+
+        CompletableFuture<AsyncJobResult> future = reactiveTranslationService.translateAsync(translateRequest);
+        asyncJobRegistry.register(jobId, future);
+
+        TranslateAsyncResponse translateAsyncResponse = new TranslateAsyncResponse(jobId);
+        return ResponseEntity.ok(translateAsyncResponse);
+    }
+
+    @GetMapping("/translateAsyncStatus/{jobId}")
+    public Mono<ResponseEntity<TranslateAsyncStatusResponse>> translateAsyncStatus(@PathVariable String jobId, ServerHttpRequest request) {
+        logger.info("Translate async status request: {}", jobId);
+
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateAsyncStatusResponse.class);
+        }
+
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
+
+        TranslateAsyncStatusResponse translateAsyncStatusResponse = AsyncJobRegistry.getStatusResponse(cacheRecord);
+        return Mono.just(ResponseEntity.ok(translateAsyncStatusResponse));
+    }
+
+    @GetMapping("/translateAsyncResult/{jobId}")
+    public Mono<ResponseEntity<TranslateResponse>> translateAsyncResult(@PathVariable String jobId, ServerHttpRequest request) {
+        logger.info("Translate async result request: {}", jobId);
+
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateResponse.class);
+        }
+
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
+
+        // Like the servlet mode, a running job is waited for, but without holding a thread
+        // A disconnected client does not cancel the job
+        return Mono.fromFuture(cacheRecord.exceptionally(AsyncJobResult::failed), true)
+                .map(asyncJobResult -> ResponseEntity.ok(asyncJobResult.translateResponse()));
+    }
+
+    @DeleteMapping("/translateAsync/{jobId}")
+    public Mono<ResponseEntity<TranslateAsyncStatusResponse>> cancelTranslateAsync(@PathVariable String jobId, ServerHttpRequest request) {
+        logger.info("Cancel translate async request: {}", jobId);
+
+        if (clusterRouter.isRemote(jobId, request)) {
+            return clusterRouter.forward(jobId, request, TranslateAsyncStatusResponse.class);
+        }
+
+        CompletableFuture<AsyncJobResult> cacheRecord = asyncJobRegistry.getRequired(jobId);
+        asyncJobRegistry.cancel(jobId);
+
+        TranslateAsyncStatusResponse translateAsyncStatusResponse = AsyncJobRegistry.getStatusResponse(cacheRecord);
+        return Mono.just(ResponseEntity.ok(translateAsyncStatusResponse));
+    }
+
+    @ExceptionHandler(ForwardedErrorException.class)
+    public ResponseEntity<byte[]> handleForwardedErrors(ForwardedErrorException exception) {
+        // The error of the node owning the job, e.g. an unknown job or an exceeded quota
+        return exception.toResponseEntity();
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleQuotaExceededErrors(Exception exception) {
+        ErrorResponse errorResponse = new ErrorResponse("Quota exceeded: %s".formatted(exception.getMessage()));
+        return new ResponseEntity<>(errorResponse, TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedAsyncExecutionErrors(Exception exception) {
+        ErrorResponse errorResponse = new ErrorResponse("Application busy: %s, %s".formatted(exception.getMessage(), exception.getCause()));
+        return new ResponseEntity<>(errorResponse, TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleOtherErrors(Exception exception) {
+        ErrorResponse errorResponse = new ErrorResponse("Application error: %s, %s".formatted(exception.getMessage(), exception.getCause()));
+        return ResponseEntity.internalServerError().body(errorResponse);
+    }
+
+}
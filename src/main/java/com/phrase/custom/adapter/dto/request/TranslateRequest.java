@@ -13,7 +13,7 @@ public record TranslateRequest(@NotNull Locale sourceLanguage, @NotNull Locale t
                                @Nullable List<GlossaryEntry> glossary,
                                @Nullable Map<String, Object> metadata) {
 
-    public record Segment(@Nullable String idx, @NotNull String text, @Nullable Map<String, Object> metadata) {
+    public record Segment(@Nullable String idx, @Nullable String text, @Nullable Map<String, Object> metadata) {
     }
 
     public record GlossaryEntry(@NotNull String term, @NotNull String translation) {
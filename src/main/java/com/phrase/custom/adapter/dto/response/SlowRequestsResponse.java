@@ -0,0 +1,9 @@
+package com.phrase.custom.adapter.dto.response;
+
+import com.phrase.custom.adapter.tracing.SlowRequestLog.SlowRequest;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public record SlowRequestsResponse(@NotNull List<SlowRequest> slowRequests) {
+}
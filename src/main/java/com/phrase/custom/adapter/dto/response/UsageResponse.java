@@ -0,0 +1,9 @@
+package com.phrase.custom.adapter.dto.response;
+
+import com.phrase.custom.adapter.service.CharacterBudget.AccountUsage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public record UsageResponse(@NotNull List<AccountUsage> usages) {
+}
@@ -0,0 +1,74 @@
+package com.phrase.custom.adapter.security;
+
+import org.apache.commons.lang3.Strings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Verifies the api keys of the requests, shared by the servlet and the reactive authentication filters.
+ * <p>
+ * Only the SHA-256 digests of the keys from {@code adapter.auth.api-keys} are kept, and the digest
+ * of the presented key (optionally prefixed by {@code Bearer }) is compared with all of them in constant time.
+ */
+@Component
+public class ApiKeyVerifier {
+
+    private final String apiKeyHeader;
+
+    private final byte[][] apiKeyDigests;
+
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(ApiKeyVerifier::newSha256);
+
+    public ApiKeyVerifier(@Value("${adapter.auth.api-keys:}") List<String> apiKeys,
+                          @Value("${adapter.auth.api-key-header:Authorization}") String apiKeyHeader) {
+        this.apiKeyHeader = apiKeyHeader;
+        this.apiKeyDigests = apiKeys.stream()
+                .filter(apiKey -> !isBlank(apiKey))
+                .map(apiKey -> newSha256().digest(apiKey.strip().getBytes(UTF_8)))
+                .toArray(byte[][]::new);
+    }
+
+    /**
+     * @return false when no api keys are configured and the requests do not need to be authenticated
+     */
+    public boolean isEnabled() {
+        return apiKeyDigests.length > 0;
+    }
+
+    public @NotNull String getApiKeyHeader() {
+        return apiKeyHeader;
+    }
+
+    public boolean isValid(@Nullable String apiKey) {
+        if (isNull(apiKey)) {
+            return false;
+        }
+
+        byte[] digest = sha256.get().digest(Strings.CI.removeStart(apiKey, "Bearer ").getBytes(UTF_8));
+        // Compare with all the keys to not reveal which (or whether any) key prefix matched
+        boolean valid = false;
+        for (byte[] apiKeyDigest : apiKeyDigests) {
+            valid |= MessageDigest.isEqual(digest, apiKeyDigest);
+        }
+        return valid;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.phrase.custom.adapter.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.phrase.custom.adapter.dto.response.ErrorResponse;
+import com.phrase.custom.adapter.tracing.RequestTrace;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+/**
+ * Authenticates every request before it reaches the controller.
+ * <p>
+ * When {@code adapter.auth.api-keys} is set, the request has to carry one of the keys in the api key header,
+ * see {@link ApiKeyVerifier}.
+ * <p>
+ * When {@code adapter.auth.hmac-secret} is set, the request additionally has to be signed:
+ * {@code X-Signature} is the hex HMAC-SHA256 of {@code <X-Timestamp>\n<method>\n<path>[?<query>]\n<body>},
+ * where {@code X-Timestamp} is in epoch seconds and must not be older than the allowed clock skew. A signature is
+ * accepted only once, so a captured request cannot be replayed within the clock skew window. The body is read before
+ * the signature can be checked, so it is limited to {@code adapter.auth.max-body-size} for the signed requests.
+ * <p>
+ * The request headers are logged only when enabled, for a sample of the requests and only the allowlisted ones,
+ * so that the credentials never end up in the logs.
+ * <p>
+ * Runs right after the {@link com.phrase.custom.adapter.tracing.RequestTracingFilter}, which measures it as the auth phase.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String TIMESTAMP_HEADER = "X-Timestamp";
+
+    public static final String SIGNATURE_HEADER = "X-Signature";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String INVALID_SIGNATURE = "invalid or missing request signature";
+
+    private final Logger logger = LoggerFactory.getLogger(AuthenticationFilter.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final ApiKeyVerifier apiKeyVerifier;
+
+    private final @Nullable ThreadLocal<Mac> hmac;
+
+    private final long maxClockSkewSeconds;
+
+    private final long maxBodyBytes;
+
+    /**
+     * The accepted signatures, kept as long as their timestamp can pass the clock skew check
+     */
+    private final Cache<String, Boolean> acceptedSignatures;
+
+    private final boolean logHeaders;
+
+    private final double headerLogSampleRate;
+
+    private final List<String> headerLogAllowlist;
+
+    public AuthenticationFilter(ObjectMapper objectMapper,
+                                ApiKeyVerifier apiKeyVerifier,
+                                @Value("${adapter.auth.hmac-secret:}") String hmacSecret,
+                                @Value("${adapter.auth.max-clock-skew:PT5M}") Duration maxClockSkew,
+                                @Value("${adapter.auth.max-body-size:10MB}") DataSize maxBodySize,
+                                @Value("${adapter.logging.headers.enabled:false}") boolean logHeaders,
+                                @Value("${adapter.logging.headers.sample-rate:0.01}") double headerLogSampleRate,
+                                @Value("${adapter.logging.headers.allowlist:content-type,user-agent}") List<String> headerLogAllowlist) {
+        this.objectMapper = objectMapper;
+        this.apiKeyVerifier = apiKeyVerifier;
+        this.hmac = isBlank(hmacSecret) ? null : ThreadLocal.withInitial(() -> newMac(hmacSecret));
+        this.maxClockSkewSeconds = maxClockSkew.toSeconds();
+        this.maxBodyBytes = maxBodySize.toBytes();
+        // A timestamp up to the clock skew in the future is valid for twice the skew
+        this.acceptedSignatures = Caffeine.newBuilder()
+                .expireAfterWrite(maxClockSkew.multipliedBy(2).plusSeconds(1))
+                .build();
+        this.logHeaders = logHeaders;
+        this.headerLogSampleRate = headerLogSampleRate;
+        this.headerLogAllowlist = headerLogAllowlist.stream().map(String::strip).toList();
+    }
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull FilterChain filterChain) throws ServletException, IOException {
+        long phaseStart = RequestTrace.start();
+        if (logHeaders && ThreadLocalRandom.current().nextDouble() < headerLogSampleRate) {
+            logHeaders(request);
+        }
+
+        if (apiKeyVerifier.isEnabled() && !apiKeyVerifier.isValid(request.getHeader(apiKeyVerifier.getApiKeyHeader()))) {
+            RequestTrace.end("auth", phaseStart);
+            reject(response, UNAUTHORIZED, "Not authenticated: invalid or missing api key");
+            return;
+        }
+
+        if (isNull(hmac)) {
+            RequestTrace.end("auth", phaseStart);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        byte[] body = readBody(request);
+        if (isNull(body)) {
+            RequestTrace.end("auth", phaseStart);
+            reject(response, PAYLOAD_TOO_LARGE, "Request body exceeds %d bytes".formatted(maxBodyBytes));
+            return;
+        }
+
+        CachedBodyRequest cachedBodyRequest = new CachedBodyRequest(request, body);
+        String rejection = verifySignature(cachedBodyRequest);
+        if (nonNull(rejection)) {
+            RequestTrace.end("auth", phaseStart);
+            reject(response, UNAUTHORIZED, "Not authenticated: %s".formatted(rejection));
+            return;
+        }
+        RequestTrace.end("auth", phaseStart);
+        filterChain.doFilter(cachedBodyRequest, response);
+    }
+
+    /**
+     * @return the body, null when the announced or the actual body exceeds the limit (a chunked body has no content length)
+     */
+    private byte @Nullable [] readBody(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            return null;
+        }
+        byte[] body = request.getInputStream().readNBytes((int) Math.min(maxBodyBytes + 1, Integer.MAX_VALUE - 8));
+        return body.length > maxBodyBytes ? null : body;
+    }
+
+    /**
+     * @return the reason of the rejection, null when the signature is valid
+     */
+    private @Nullable String verifySignature(CachedBodyRequest request) {
+        String timestamp = request.getHeader(TIMESTAMP_HEADER);
+        String signature = request.getHeader(SIGNATURE_HEADER);
+        if (isNull(timestamp) || isNull(signature)) {
+            return INVALID_SIGNATURE;
+        }
+
+        try {
+            long skewSeconds = Math.abs(System.currentTimeMillis() / 1000 - Long.parseLong(timestamp));
+            if (skewSeconds > maxClockSkewSeconds) {
+                return INVALID_SIGNATURE;
+            }
+
+            Mac mac = hmac.get();
+            // The query is signed too, so that no parameter can be added or changed
+            String target = isNull(request.getQueryString()) ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+            mac.update("%s\n%s\n%s\n".formatted(timestamp, request.getMethod(), target).getBytes(UTF_8));
+            byte[] expected = mac.doFinal(request.body);
+            if (!MessageDigest.isEqual(expected, HexFormat.of().parseHex(signature))) {
+                return INVALID_SIGNATURE;
+            }
+            // Keyed by the computed signature, the hex case of the header cannot make a replay look new
+            if (nonNull(acceptedSignatures.asMap().putIfAbsent(HexFormat.of().formatHex(expected), Boolean.TRUE))) {
+                return "request signature already used";
+            }
+            return null;
+        } catch (IllegalArgumentException e) {
+            return INVALID_SIGNATURE;
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        logger.warn("Request rejected: {}", error);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(error));
+    }
+
+    private void logHeaders(HttpServletRequest request) {
+        StringBuilder headers = new StringBuilder();
+        for (String headerName : headerLogAllowlist) {
+            String headerValue = request.getHeader(headerName);
+            if (nonNull(headerValue)) {
+                headers.append(headers.isEmpty() ? "" : ", ").append(headerName).append(": ").append(headerValue);
+            }
+        }
+        logger.info("Http headers of {} {}: {}", request.getMethod(), request.getRequestURI(), headers);
+    }
+
+    private static Mac newMac(String secret) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(UTF_8), HMAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The signature covers the body, so it is read up front and replayed to the controller.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The body is in memory, all of it is available right away
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte @NotNull [] b, int off, int len) {
+                    return inputStream.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), UTF_8));
+        }
+
+    }
+
+}
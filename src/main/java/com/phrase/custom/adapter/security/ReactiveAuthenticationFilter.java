@@ -0,0 +1,68 @@
+package com.phrase.custom.adapter.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phrase.custom.adapter.dto.response.ErrorResponse;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+/**
+ * The reactive counterpart of {@link AuthenticationFilter}, verifies the api keys.
+ * <p>
+ * The HMAC request signing covers the request body, which is not buffered up front in the reactive mode,
+ * so the reactive mode refuses to start with {@code adapter.auth.hmac-secret} set rather than skipping the check.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReactiveAuthenticationFilter implements WebFilter {
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveAuthenticationFilter.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final ApiKeyVerifier apiKeyVerifier;
+
+    public ReactiveAuthenticationFilter(ObjectMapper objectMapper, ApiKeyVerifier apiKeyVerifier,
+                                        @Value("${adapter.auth.hmac-secret:}") String hmacSecret) {
+        if (!isBlank(hmacSecret)) {
+            throw new IllegalStateException("HMAC request signing (adapter.auth.hmac-secret) is supported only in the servlet mode");
+        }
+        this.objectMapper = objectMapper;
+        this.apiKeyVerifier = apiKeyVerifier;
+    }
+
+    @Override
+    public @NotNull Mono<Void> filter(@NotNull ServerWebExchange exchange, @NotNull WebFilterChain chain) {
+        if (!apiKeyVerifier.isEnabled() || apiKeyVerifier.isValid(exchange.getRequest().getHeaders().getFirst(apiKeyVerifier.getApiKeyHeader()))) {
+            return chain.filter(exchange);
+        }
+
+        logger.warn("Request rejected: invalid or missing api key");
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(UNAUTHORIZED);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new ErrorResponse("Not authenticated: invalid or missing api key"));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.phrase.custom.adapter.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus;
+import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.DONE;
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.FAILED;
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.RUNNING;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Keeps track of the asynchronous translation jobs by their jobId.
+ * <p>
+ * A job is cancelled when it runs longer than the job deadline or when Phrase stops polling it for longer
+ * than the poll window (Phrase gave up on it). Cancelling the job interrupts the running translation
+ * and frees the executor capacity, see {@link TranslationService#translateAsync}.
+ * <p>
+ * On shutdown the jobs are persisted to {@code adapter.async.job-store-dir}, see {@link DrainCoordinator}.
+ * A job missing in the memory is looked up there, so Phrase can keep polling the jobs of the previous run.
+ * A loaded job keeps the expiry of its first registration, and its file is kept until then, so it survives
+ * another restart without a clean drain too.
+ */
+@Component
+public class AsyncJobRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(AsyncJobRegistry.class);
+
+    private static final Pattern JOB_ID_PATTERN = Pattern.compile("[\\w-]+(\\.[\\w-]+)*");
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration jobDeadline;
+
+    private final Duration pollWindow;
+
+    private final Duration retention;
+
+    private final Path jobStoreDir;
+
+    private final Cache<@NotNull String, AsyncJob> asyncJobCache;
+
+    /**
+     * @param expiresAt the end of the retention in epoch milliseconds, also after a restart
+     */
+    private record AsyncJob(@NotNull CompletableFuture<AsyncJobResult> job, long expiresAt) {
+    }
+
+    /**
+     * The content of a job file
+     */
+    record PersistedJob(long expiresAt, @NotNull AsyncJobResult result) {
+    }
+
+    public AsyncJobRegistry(ObjectMapper objectMapper,
+                            @Value("${adapter.async.job-deadline:PT30M}") Duration jobDeadline,
+                            @Value("${adapter.async.poll-window:PT10M}") Duration pollWindow,
+                            @Value("${adapter.async.retention:PT35M}") Duration retention,
+                            @Value("${adapter.async.job-store-dir:}") String jobStoreDir) {
+        this.objectMapper = objectMapper;
+        this.jobDeadline = jobDeadline;
+        this.pollWindow = pollWindow;
+        this.retention = retention;
+        this.jobStoreDir = isBlank(jobStoreDir) ? null : Path.of(jobStoreDir);
+        this.asyncJobCache = Caffeine.newBuilder()
+                // Expires after the poll window without access, at the latest at the end of the retention
+                .expireAfter(Expiry.<String, AsyncJob>accessing((jobId, asyncJob) -> getExpiry(asyncJob)))
+                // Expire abandoned jobs on time, not only on the next cache access
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    public void register(@NotNull String jobId, @NotNull CompletableFuture<AsyncJobResult> job) {
+        job.orTimeout(jobDeadline.toMillis(), MILLISECONDS);
+        asyncJobCache.put(jobId, new AsyncJob(job, System.currentTimeMillis() + retention.toMillis()));
+    }
+
+    public @Nullable CompletableFuture<AsyncJobResult> get(@NotNull String jobId) {
+        AsyncJob asyncJob = isNull(jobStoreDir) ? asyncJobCache.getIfPresent(jobId) : asyncJobCache.get(jobId, this::load);
+        return isNull(asyncJob) ? null : asyncJob.job();
+    }
+
+    public @NotNull CompletableFuture<AsyncJobResult> getRequired(@NotNull String jobId) {
+        CompletableFuture<AsyncJobResult> job = get(jobId);
+        if (isNull(job)) {
+            throw new IllegalStateException("No translation job found with id '%s'".formatted(jobId));
+        }
+        return job;
+    }
+
+    public static @NotNull TranslateAsyncStatusResponse getStatusResponse(@NotNull CompletableFuture<AsyncJobResult> job) {
+        AsyncStatus status = RUNNING;
+        String detail = "no detail";
+        if (job.isDone()) {
+            AsyncJobResult asyncJobResult = job.exceptionally(AsyncJobResult::failed).join();
+            if (nonNull(asyncJobResult) && nonNull(asyncJobResult.translateResponse())) {
+                status = DONE;
+                detail = "completed successfully";
+            } else {
+                status = FAILED;
+                if (nonNull(asyncJobResult)) {
+                    detail = asyncJobResult.failureDetail(); // Make sure the failure detail is filled out as it gets propagated to the UI and is useful for debugging
+                }
+            }
+        }
+        return new TranslateAsyncStatusResponse(status, detail);
+    }
+
+    /**
+     * @return false if there is no such job or the job has already finished
+     */
+    public boolean cancel(@NotNull String jobId) {
+        AsyncJob asyncJob = asyncJobCache.getIfPresent(jobId);
+        return nonNull(asyncJob) && asyncJob.job().cancel(true);
+    }
+
+    public long getRunningCount() {
+        return asyncJobCache.asMap().values().stream().filter(asyncJob -> !asyncJob.job().isDone()).count();
+    }
+
+    /**
+     * Writes all the jobs to the job store, the unfinished ones as failed, and deletes the files of the expired jobs.
+     */
+    public void persist() {
+        if (isNull(jobStoreDir)) {
+            return;
+        }
+
+        int persisted = 0;
+        try {
+            Files.createDirectories(jobStoreDir);
+            for (Map.Entry<String, AsyncJob> entry : asyncJobCache.asMap().entrySet()) {
+                CompletableFuture<AsyncJobResult> job = entry.getValue().job();
+                AsyncJobResult asyncJobResult = job.isDone()
+                        ? job.exceptionally(AsyncJobResult::failed).join()
+                        : new AsyncJobResult(null, "translation job interrupted by the adapter shutdown");
+
+                Path jobFile = jobStoreDir.resolve(entry.getKey() + ".json");
+                Path tempFile = jobStoreDir.resolve(entry.getKey() + ".tmp");
+                objectMapper.writeValue(tempFile.toFile(), new PersistedJob(entry.getValue().expiresAt(), asyncJobResult));
+                Files.move(tempFile, jobFile, REPLACE_EXISTING, ATOMIC_MOVE);
+                persisted++;
+            }
+            deleteExpiredJobFiles();
+        } catch (IOException e) {
+            logger.error("Could not persist the jobs to '{}'", jobStoreDir, e);
+        }
+        logger.info("Persisted {} jobs to '{}'", persisted, jobStoreDir);
+    }
+
+    private Duration getExpiry(AsyncJob asyncJob) {
+        Duration remaining = Duration.ofMillis(Math.max(0, asyncJob.expiresAt() - System.currentTimeMillis()));
+        return remaining.compareTo(pollWindow) < 0 ? remaining : pollWindow;
+    }
+
+    private @Nullable AsyncJob load(String jobId) {
+        // The job id comes from the request, it must not point outside the job store
+        if (!JOB_ID_PATTERN.matcher(jobId).matches()) {
+            return null;
+        }
+
+        Path jobFile = jobStoreDir.resolve(jobId + ".json");
+        try {
+            if (!Files.exists(jobFile)) {
+                return null;
+            }
+            // The file stays until the job expires, in case this instance stops without persisting the jobs
+            PersistedJob persistedJob = objectMapper.readValue(jobFile.toFile(), PersistedJob.class);
+            if (persistedJob.expiresAt() <= System.currentTimeMillis()) {
+                Files.deleteIfExists(jobFile);
+                return null;
+            }
+            return new AsyncJob(CompletableFuture.completedFuture(persistedJob.result()), persistedJob.expiresAt());
+        } catch (IOException e) {
+            logger.error("Could not load the jobId: '{}' from '{}'", jobId, jobStoreDir, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the files of the jobs which have not been polled again before their expiry
+     */
+    private void deleteExpiredJobFiles() throws IOException {
+        try (Stream<Path> jobFiles = Files.list(jobStoreDir)) {
+            for (Path jobFile : jobFiles.filter(file -> file.getFileName().toString().endsWith(".json")).toList()) {
+                try {
+                    if (objectMapper.readValue(jobFile.toFile(), PersistedJob.class).expiresAt() <= System.currentTimeMillis()) {
+                        Files.deleteIfExists(jobFile);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Could not check the job file '{}'", jobFile, e);
+                }
+            }
+        }
+    }
+
+    private void onRemoval(@Nullable String jobId, @Nullable AsyncJob asyncJob, RemovalCause cause) {
+        if (!cause.wasEvicted() || isNull(asyncJob)) {
+            return;
+        }
+        if (asyncJob.job().cancel(true)) {
+            logger.info("Cancelled abandoned jobId: '{}' ({})", jobId, cause);
+        }
+        if (nonNull(jobStoreDir) && nonNull(jobId)) {
+            try {
+                Files.deleteIfExists(jobStoreDir.resolve(jobId + ".json"));
+            } catch (IOException e) {
+                logger.warn("Could not delete the expired jobId: '{}' from '{}'", jobId, jobStoreDir, e);
+            }
+        }
+    }
+
+}
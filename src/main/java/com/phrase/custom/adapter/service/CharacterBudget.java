@@ -0,0 +1,317 @@
+package com.phrase.custom.adapter.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+
+/**
+ * Accounts the billable engine characters per tenant and engine, broken down by the engine api key for reporting.
+ * <p>
+ * The usage is counted per fixed time window ({@code adapter.budget.window}, aligned to the epoch). The budget is
+ * enforced on one counter per tenant and engine, shared by all api keys, and the check and the charge are atomic, so
+ * concurrent requests cannot overrun the budget together. A request exceeding the budget of the tenant
+ * ({@code adapter.budget.tenant-limits}, {@code adapter.budget.max-characters} for the others, 0 = unlimited) is rejected
+ * with {@link QuotaExceededException} and Phrase backs off. Crossing the warning threshold is logged.
+ * <p>
+ * The tenant and the api key are taken from the request metadata ({@code adapter.budget.tenant-metadata-key}). The metadata
+ * is client-supplied, so only the configured tenants ({@code adapter.budget.tenants} and the tenants with a limit) are
+ * budgeted separately, any other value is accounted to {@code default}. At most {@code adapter.budget.max-tracked-keys}
+ * api keys are reported separately, the usage of any further key is reported as {@code other}.
+ * <p>
+ * The budget counters are exposed as the {@code adapter.budget.characters} gauge. The usage per api key is periodically
+ * written to {@code adapter.budget.store-file}, so the budgets survive a restart.
+ */
+@Component
+public class CharacterBudget {
+
+    private final Logger logger = LoggerFactory.getLogger(CharacterBudget.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final long maxCharacters;
+
+    private final Map<String, Long> tenantLimits;
+
+    private final Set<String> tenants;
+
+    private final long windowMillis;
+
+    private final double warningThreshold;
+
+    private final String tenantMetadataKey;
+
+    private final int maxTrackedKeys;
+
+    private final Path storeFile;
+
+    private final Map<Budget, Usage> budgets = new ConcurrentHashMap<>();
+
+    private final Map<Account, Usage> accounts = new ConcurrentHashMap<>();
+
+    public CharacterBudget(MeterRegistry meterRegistry,
+                           @Value("${adapter.budget.max-characters:0}") long maxCharacters,
+                           @Value("${adapter.budget.tenant-limits:}") String tenantLimits,
+                           @Value("${adapter.budget.tenants:}") List<String> tenants,
+                           @Value("${adapter.budget.window:P30D}") Duration window,
+                           @Value("${adapter.budget.warning-threshold:0.9}") double warningThreshold,
+                           @Value("${adapter.budget.tenant-metadata-key:tenant}") String tenantMetadataKey,
+                           @Value("${adapter.budget.max-tracked-keys:100}") int maxTrackedKeys,
+                           @Value("${adapter.budget.store-file:}") String storeFile) {
+        this.meterRegistry = meterRegistry;
+        this.maxCharacters = maxCharacters;
+        this.tenantLimits = Arrays.stream(tenantLimits.split(","))
+                .map(String::strip)
+                .filter(tenantLimit -> !tenantLimit.isEmpty())
+                .collect(toUnmodifiableMap(tenantLimit -> substringBefore(tenantLimit, "=").strip(), tenantLimit -> Long.parseLong(substringAfter(tenantLimit, "=").strip())));
+        this.tenants = Stream.concat(tenants.stream().map(String::strip).filter(tenant -> !tenant.isEmpty()), this.tenantLimits.keySet().stream())
+                .collect(toUnmodifiableSet());
+        this.windowMillis = window.toMillis();
+        this.warningThreshold = warningThreshold;
+        this.tenantMetadataKey = tenantMetadataKey;
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.storeFile = isBlank(storeFile) ? null : Path.of(storeFile);
+        load();
+    }
+
+    /**
+     * @param apiKey only a fingerprint of the key is kept
+     */
+    public @NotNull Account getAccount(@Nullable Map<String, Object> requestMetadata, @Nullable String apiKey, @NotNull String engine) {
+        Object tenant = isNull(requestMetadata) ? null : requestMetadata.get(tenantMetadataKey);
+        return getTrackedAccount(new Account(
+                getKnownTenant(isNull(tenant) ? null : tenant.toString()),
+                isBlank(apiKey) ? "none" : fingerprint(apiKey),
+                engine
+        ));
+    }
+
+    public record Account(@NotNull String tenant, @NotNull String apiKey, @NotNull String engine) {
+    }
+
+    private record Budget(@NotNull String tenant, @NotNull String engine) {
+    }
+
+    /**
+     * @param windowStart the budget window the characters were charged to
+     */
+    public record Charge(@NotNull Account account, long windowStart, long characters) {
+    }
+
+    /**
+     * @param limit the budget shared by all api keys of the tenant and engine
+     */
+    public record AccountUsage(@NotNull String tenant, @NotNull String apiKey, @NotNull String engine,
+                               long windowStart, long characters, long limit) {
+    }
+
+    /**
+     * Charges the characters to the account before they are sent to the engine.
+     *
+     * @return the charge to be refunded when the engine call fails
+     * @throws QuotaExceededException when the characters do not fit into the budget of the current window
+     */
+    public @NotNull Charge charge(@NotNull Account account, long characters) {
+        Usage budget = getBudget(account);
+        long limit = getLimit(account);
+        long windowStart = windowStart(System.currentTimeMillis());
+        long used = budget.reserve(windowStart, characters, limit);
+
+        if (used < 0) {
+            throw new QuotaExceededException("character budget of tenant '%s' exhausted for engine '%s' (%d of %d characters used, %d requested)"
+                    .formatted(account.tenant(), account.engine(), budget.current(windowStart), limit, characters));
+        }
+        getUsage(account).reserve(windowStart, characters, 0);
+
+        if (limit > 0 && used < limit * warningThreshold && used + characters >= limit * warningThreshold) {
+            logger.warn("Character budget of tenant '{}' for engine '{}' is almost used up: {} of {} characters", account.tenant(), account.engine(), used + characters, limit);
+        }
+        return new Charge(account, windowStart, characters);
+    }
+
+    /**
+     * Returns the characters of a failed engine call back to the budget. A charge of a past window is not refunded,
+     * the usage of the current window starts from zero anyway.
+     */
+    public void refund(@NotNull Charge charge) {
+        getBudget(charge.account()).refund(charge.windowStart(), charge.characters());
+        getUsage(charge.account()).refund(charge.windowStart(), charge.characters());
+    }
+
+    public @NotNull List<AccountUsage> getUsages() {
+        long windowStart = windowStart(System.currentTimeMillis());
+        List<AccountUsage> accountUsages = new ArrayList<>();
+        accounts.forEach((account, usage) -> accountUsages.add(new AccountUsage(
+                account.tenant(), account.apiKey(), account.engine(), windowStart, usage.current(windowStart), getLimit(account))));
+        accountUsages.sort(Comparator.comparing(AccountUsage::tenant).thenComparing(AccountUsage::engine).thenComparing(AccountUsage::apiKey));
+        return accountUsages;
+    }
+
+    @Scheduled(fixedDelayString = "${adapter.budget.persist-interval:PT1M}")
+    @PreDestroy
+    public void persist() {
+        if (isNull(storeFile)) {
+            return;
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (AccountUsage accountUsage : getUsages()) {
+            content.append(accountUsage.tenant()).append('\t')
+                    .append(accountUsage.apiKey()).append('\t')
+                    .append(accountUsage.engine()).append('\t')
+                    .append(accountUsage.windowStart()).append('\t')
+                    .append(accountUsage.characters()).append('\n');
+        }
+
+        try {
+            Path tempFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, content, UTF_8);
+            Files.move(tempFile, storeFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not persist the character usage to '{}'", storeFile, e);
+        }
+    }
+
+    private void load() {
+        if (isNull(storeFile) || !Files.exists(storeFile)) {
+            return;
+        }
+
+        try {
+            long windowStart = windowStart(System.currentTimeMillis());
+            for (String line : Files.readAllLines(storeFile, UTF_8)) {
+                String[] columns = line.split("\t");
+                // The usage of the past windows is not relevant anymore
+                if (columns.length == 5 && Long.parseLong(columns[3]) == windowStart) {
+                    Account account = getTrackedAccount(new Account(getKnownTenant(columns[0]), columns[1], columns[2]));
+                    getBudget(account).reserve(windowStart, Long.parseLong(columns[4]), 0);
+                    getUsage(account).reserve(windowStart, Long.parseLong(columns[4]), 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the character usage from '%s'".formatted(storeFile), e);
+        }
+    }
+
+    private Usage getBudget(Account account) {
+        return budgets.computeIfAbsent(new Budget(account.tenant(), account.engine()), budget -> {
+            Usage usage = new Usage();
+            Gauge.builder("adapter.budget.characters", usage, value -> value.current(windowStart(System.currentTimeMillis())))
+                    .description("Engine characters used in the current budget window")
+                    .tags("tenant", budget.tenant(), "engine", budget.engine())
+                    .register(meterRegistry);
+            return usage;
+        });
+    }
+
+    private Usage getUsage(Account account) {
+        return accounts.computeIfAbsent(account, newAccount -> new Usage());
+    }
+
+    /**
+     * @return the account, or the {@code other} account of its tenant and engine when enough api keys are tracked already
+     */
+    private Account getTrackedAccount(Account account) {
+        if (accounts.size() < maxTrackedKeys || accounts.containsKey(account)) {
+            return account;
+        }
+        return new Account(account.tenant(), "other", account.engine());
+    }
+
+    private String getKnownTenant(@Nullable String tenant) {
+        return isNull(tenant) || !tenants.contains(tenant) ? "default" : tenant;
+    }
+
+    private long getLimit(Account account) {
+        return tenantLimits.getOrDefault(account.tenant(), maxCharacters);
+    }
+
+    private long windowStart(long timeMillis) {
+        return timeMillis - timeMillis % windowMillis;
+    }
+
+    private static String fingerprint(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The characters used in the current window. The window roll, the check and the charge happen under one lock,
+     * an engine call per request is far slower than the contention on it.
+     */
+    private static class Usage {
+
+        private long windowStart;
+
+        private long characters;
+
+        /**
+         * @return the characters used in the given window, the counter is reset when a new window has started
+         */
+        synchronized long current(long currentWindowStart) {
+            if (windowStart != currentWindowStart) {
+                characters = 0;
+                windowStart = currentWindowStart;
+            }
+            return characters;
+        }
+
+        /**
+         * @param limit 0 = unlimited
+         * @return the characters used before the reservation, -1 when the characters do not fit into the limit
+         */
+        synchronized long reserve(long currentWindowStart, long requested, long limit) {
+            long used = current(currentWindowStart);
+            if (limit > 0 && used + requested > limit) {
+                return -1;
+            }
+            characters += requested;
+            return used;
+        }
+
+        synchronized void refund(long chargedWindowStart, long refunded) {
+            if (windowStart == chargedWindowStart) {
+                characters = Math.max(0, characters - refunded);
+            }
+        }
+
+    }
+
+}
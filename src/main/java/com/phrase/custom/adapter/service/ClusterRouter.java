@@ -0,0 +1,214 @@
+package com.phrase.custom.adapter.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+
+/**
+ * Routes the async job requests when several adapter instances run behind one load balancer.
+ * <p>
+ * The async jobs live in the memory of the node which started them, so in the multi-node mode the jobId
+ * is prefixed by the id of the owning node ({@code <nodeId>.<uuid>}). A status, result or cancel request
+ * for a job owned by another node is forwarded to that node over HTTP (by a non-blocking client in the reactive mode).
+ * The owner's errors are passed on unchanged by a {@link ForwardedErrorException}. A forwarded request is marked by the
+ * {@link #FORWARDED_HEADER}, which is trusted only when the request comes from the address of one of the nodes.
+ * <p>
+ * The multi-node mode is enabled by setting {@code adapter.cluster.node-id} and listing the nodes
+ * in {@code adapter.cluster.nodes} as {@code nodeId=baseUrl} pairs separated by commas.
+ */
+@Component
+public class ClusterRouter {
+
+    public static final String FORWARDED_HEADER = "X-Adapter-Forwarded";
+
+    private static final char NODE_SEPARATOR = '.';
+
+    private final Logger logger = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private final String nodeId;
+
+    private final Map<String, String> nodeUrls;
+
+    private final List<String> forwardedHeaders;
+
+    private final Duration forwardTimeout;
+
+    private final RestClient restClient;
+
+    private final WebClient webClient;
+
+    public ClusterRouter(@Value("${adapter.cluster.node-id:}") String nodeId,
+                         @Value("${adapter.cluster.nodes:}") String nodes,
+                         @Value("${adapter.cluster.forward-timeout:PT10S}") Duration forwardTimeout,
+                         @Value("${adapter.cluster.forwarded-headers:${adapter.auth.api-key-header:Authorization},X-Timestamp,X-Signature}") List<String> forwardedHeaders) {
+        if (nodeId.indexOf(NODE_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Node id '%s' must not contain '%s'".formatted(nodeId, NODE_SEPARATOR));
+        }
+        this.nodeId = nodeId;
+        this.nodeUrls = Arrays.stream(nodes.split(","))
+                .map(String::strip)
+                .filter(node -> !node.isEmpty())
+                .collect(toUnmodifiableMap(node -> substringBefore(node, "=").strip(), node -> substringAfter(node, "=").strip()));
+        this.forwardedHeaders = forwardedHeaders.stream().map(String::strip).toList();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(forwardTimeout)
+                .build());
+        requestFactory.setReadTimeout(forwardTimeout);
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.forwardTimeout = forwardTimeout;
+        this.webClient = WebClient.create();
+    }
+
+    public @NotNull String newJobId() {
+        String jobId = UUID.randomUUID().toString();
+        return isBlank(nodeId) ? jobId : nodeId + NODE_SEPARATOR + jobId;
+    }
+
+    /**
+     * @return true if the job is owned by another node and the request has to be forwarded there
+     */
+    public boolean isRemote(@NotNull String jobId, @NotNull HttpServletRequest request) {
+        return isRemote(jobId, nonNull(request.getHeader(FORWARDED_HEADER)) && isNodeAddress(toAddress(request.getRemoteAddr())));
+    }
+
+    public boolean isRemote(@NotNull String jobId, @NotNull ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return isRemote(jobId, nonNull(request.getHeaders().getFirst(FORWARDED_HEADER)) && nonNull(remoteAddress) && isNodeAddress(remoteAddress.getAddress()));
+    }
+
+    public <T> ResponseEntity<T> forward(@NotNull String jobId, @NotNull HttpServletRequest request, @NotNull Class<T> responseType) {
+        String ownerUrl = getOwnerUrl(jobId);
+
+        logger.info("Forwarding {} {} to '{}'", request.getMethod(), request.getRequestURI(), ownerUrl);
+        // The raw path and query as received, the owner checks the signature over them
+        String target = isNull(request.getQueryString()) ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+        ResponseEntity<T> ownerResponse = restClient.method(HttpMethod.valueOf(request.getMethod()))
+                .uri(URI.create(ownerUrl + target))
+                .header(FORWARDED_HEADER, "true")
+                // The owner authenticates the forwarded request again
+                .headers(headers -> forwardedHeaders.forEach(headerName -> {
+                    String headerValue = request.getHeader(headerName);
+                    if (nonNull(headerValue)) {
+                        headers.set(headerName, headerValue);
+                    }
+                }))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (ownerRequest, ownerError) -> {
+                    throw new ForwardedErrorException(ownerError.getStatusCode(), ownerError.getHeaders().getContentType(),
+                            ownerError.getBody().readAllBytes());
+                })
+                .toEntity(responseType);
+
+        // Only the status and the body are passed on, the transport headers belong to the owner's response
+        return ResponseEntity.status(ownerResponse.getStatusCode()).body(ownerResponse.getBody());
+    }
+
+    public <T> Mono<ResponseEntity<T>> forward(@NotNull String jobId, @NotNull ServerHttpRequest request, @NotNull Class<T> responseType) {
+        String ownerUrl = getOwnerUrl(jobId);
+
+        logger.info("Forwarding {} {} to '{}'", request.getMethod(), request.getPath(), ownerUrl);
+        // The raw path and query as received, the owner checks the signature over them
+        String query = request.getURI().getRawQuery();
+        String target = isNull(query) ? request.getPath().value() : request.getPath().value() + "?" + query;
+        return webClient.method(request.getMethod())
+                .uri(URI.create(ownerUrl + target))
+                .header(FORWARDED_HEADER, "true")
+                // The owner authenticates the forwarded request again
+                .headers(headers -> forwardedHeaders.forEach(headerName -> {
+                    String headerValue = request.getHeaders().getFirst(headerName);
+                    if (nonNull(headerValue)) {
+                        headers.set(headerName, headerValue);
+                    }
+                }))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, ownerResponse -> ownerResponse.bodyToMono(byte[].class)
+                        .defaultIfEmpty(new byte[0])
+                        .map(body -> new ForwardedErrorException(ownerResponse.statusCode(), ownerResponse.headers().contentType().orElse(null), body)))
+                .toEntity(responseType)
+                .timeout(forwardTimeout)
+                // Only the status and the body are passed on, the transport headers belong to the owner's response
+                .map(ownerResponse -> ResponseEntity.status(ownerResponse.getStatusCode()).body(ownerResponse.getBody()));
+    }
+
+    private boolean isRemote(String jobId, boolean forwardedByNode) {
+        String ownerNodeId = getOwnerNodeId(jobId);
+        // A forwarded request is never forwarded again, so misconfigured nodes cannot bounce it around
+        return nonNull(ownerNodeId) && !ownerNodeId.equals(nodeId) && !forwardedByNode;
+    }
+
+    /**
+     * @return true if the address is one of the addresses of the configured nodes, resolved through the JVM's DNS cache
+     */
+    private boolean isNodeAddress(@Nullable InetAddress address) {
+        if (isNull(address)) {
+            return false;
+        }
+        for (String nodeUrl : nodeUrls.values()) {
+            try {
+                for (InetAddress nodeAddress : InetAddress.getAllByName(URI.create(nodeUrl).getHost())) {
+                    if (nodeAddress.equals(address)) {
+                        return true;
+                    }
+                }
+            } catch (UnknownHostException | IllegalArgumentException e) {
+                // A node which cannot be resolved has not sent the request
+            }
+        }
+        return false;
+    }
+
+    private static @Nullable InetAddress toAddress(@Nullable String remoteAddr) {
+        try {
+            // An IP literal, nothing is looked up
+            return isNull(remoteAddr) ? null : InetAddress.getByName(remoteAddr);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private String getOwnerUrl(String jobId) {
+        String ownerNodeId = getOwnerNodeId(jobId);
+        String ownerUrl = nodeUrls.get(ownerNodeId);
+        if (isNull(ownerUrl)) {
+            throw new IllegalStateException("No translation job found with id '%s', unknown node '%s'".formatted(jobId, ownerNodeId));
+        }
+        return ownerUrl;
+    }
+
+    private @Nullable String getOwnerNodeId(String jobId) {
+        int separatorIndex = jobId.lastIndexOf(NODE_SEPARATOR);
+        return separatorIndex < 0 ? null : jobId.substring(0, separatorIndex);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.phrase.custom.adapter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Thread.sleep;
+
+/**
+ * Drains the adapter on shutdown (SIGTERM), before the web server and the executor are stopped.
+ * <p>
+ * While draining, {@code /status} reports {@code NOT_OK} and new async jobs are refused, so Phrase sends the work
+ * to the other instances. The sync requests in flight and the accepted async jobs (running and queued) get up
+ * to {@code adapter.drain.grace-period} to finish, the status and result polls keep working meanwhile.
+ * Then the jobs are persisted by the {@link AsyncJobRegistry} for the next run.
+ */
+@Component
+public class DrainCoordinator implements SmartLifecycle {
+
+    private final Logger logger = LoggerFactory.getLogger(DrainCoordinator.class);
+
+    private final AsyncJobRegistry asyncJobRegistry;
+
+    private final ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    private final Duration gracePeriod;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    private volatile boolean running;
+
+    private volatile boolean draining;
+
+    /**
+     * Depending on the executor makes the drain stop before the executor, which pauses on stop.
+     */
+    public DrainCoordinator(AsyncJobRegistry asyncJobRegistry,
+                            @Qualifier("threadPoolTaskExecutor") ThreadPoolTaskExecutor threadPoolTaskExecutor,
+                            @Value("${adapter.drain.grace-period:PT25S}") Duration gracePeriod) {
+        this.asyncJobRegistry = asyncJobRegistry;
+        this.threadPoolTaskExecutor = threadPoolTaskExecutor;
+        this.gracePeriod = gracePeriod;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @throws RejectedExecutionException while draining
+     */
+    public void checkAcceptingJobs() {
+        if (draining) {
+            throw new RejectedExecutionException("adapter is shutting down");
+        }
+    }
+
+    public void requestStarted() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        draining = true;
+        logger.info("Draining {} requests and {} jobs, {} queued", inFlightRequests.get(), asyncJobRegistry.getRunningCount(),
+                threadPoolTaskExecutor.getQueueSize());
+
+        long deadline = System.nanoTime() + gracePeriod.toNanos();
+        try {
+            while ((inFlightRequests.get() > 0 || asyncJobRegistry.getRunningCount() > 0) && System.nanoTime() < deadline) {
+                sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (inFlightRequests.get() > 0 || asyncJobRegistry.getRunningCount() > 0) {
+            logger.warn("Grace period exceeded, {} requests and {} jobs unfinished", inFlightRequests.get(), asyncJobRegistry.getRunningCount());
+        } else {
+            logger.info("Drained");
+        }
+
+        asyncJobRegistry.persist();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops first, the web server keeps serving the polls while draining.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.phrase.custom.adapter.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * The node owning a job answered a forwarded request with an error, see {@link ClusterRouter}.
+ */
+public class ForwardedErrorException extends RuntimeException {
+
+    private final HttpStatusCode statusCode;
+
+    private final @Nullable MediaType contentType;
+
+    private final byte[] body;
+
+    public ForwardedErrorException(@NotNull HttpStatusCode statusCode, @Nullable MediaType contentType, byte[] body) {
+        super("owner node responded with %s".formatted(statusCode));
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * @return the owner's error response with the status and the body unchanged
+     */
+    public @NotNull ResponseEntity<byte[]> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(statusCode);
+        if (nonNull(contentType)) {
+            response.contentType(contentType);
+        }
+        return response.body(body);
+    }
+
+}
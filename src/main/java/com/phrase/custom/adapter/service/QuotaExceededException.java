@@ -0,0 +1,12 @@
+package com.phrase.custom.adapter.service;
+
+/**
+ * The engine character budget of the tenant is used up for the current time window.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+
+}
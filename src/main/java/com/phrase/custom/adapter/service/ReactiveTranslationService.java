@@ -0,0 +1,175 @@
+package com.phrase.custom.adapter.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import com.phrase.custom.adapter.service.TranslationService.PreparedRequest;
+import io.netty.channel.ChannelOption;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * The reactive counterpart of {@link TranslationService}, no thread is blocked while the engine translates.
+ * <p>
+ * The segments are prepared, charged and assembled by {@link TranslationService}, the engine is called
+ * by a non-blocking HTTP client. The number of translations in flight is bounded by
+ * {@code adapter.reactive.max-in-flight}, above it the requests are rejected and Phrase backs off. An engine call
+ * not answering within {@code adapter.reactive.engine-connect-timeout} and {@code adapter.reactive.engine-response-timeout}
+ * fails, so a hung connection cannot hold its slot (and the drain on shutdown) forever.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTranslationService {
+
+    // DeepL accepts at most 50 texts per request
+    private static final int ENGINE_BATCH_SIZE = 50;
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveTranslationService.class);
+
+    private final TranslationService translationService;
+
+    private final WebClient webClient;
+
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ReactiveTranslationService(TranslationService translationService, WebClient.Builder webClientBuilder,
+                                      @Value("${adapter.reactive.max-in-flight:1000}") int maxInFlight,
+                                      @Value("${adapter.reactive.engine-connect-timeout:PT5S}") Duration engineConnectTimeout,
+                                      @Value("${adapter.reactive.engine-response-timeout:PT30S}") Duration engineResponseTimeout) {
+        this.translationService = translationService;
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) engineConnectTimeout.toMillis())
+                .responseTimeout(engineResponseTimeout);
+        this.webClient = webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+        this.maxInFlight = maxInFlight;
+    }
+
+    public @NotNull Mono<TranslateResponse> translate(TranslateRequest translateRequest) {
+        return Mono.defer(() -> {
+            acquire();
+            return getTranslateResponse(translateRequest).doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    /**
+     * Starts the translation right away. Cancelling (or timing out) the returned future cancels the engine calls.
+     *
+     * @throws RejectedExecutionException when there are too many translations in flight
+     */
+    public @NotNull CompletableFuture<AsyncJobResult> translateAsync(TranslateRequest translateRequest) {
+        acquire();
+
+        CompletableFuture<AsyncJobResult> job = new CompletableFuture<>();
+        Disposable subscription = getTranslateResponse(translateRequest)
+                .map(translateResponse -> new AsyncJobResult(translateResponse, null))
+                .onErrorResume(e -> Mono.just(new AsyncJobResult(null, "translation failed: %s".formatted(e))))
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(job::complete);
+
+        job.whenComplete((asyncJobResult, throwable) -> {
+            if (nonNull(throwable)) {
+                subscription.dispose();
+            }
+        });
+
+        return job;
+    }
+
+    private void acquire() {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            throw new RejectedExecutionException("more than %d translations in flight".formatted(maxInFlight));
+        }
+    }
+
+    private Mono<TranslateResponse> getTranslateResponse(TranslateRequest translateRequest) {
+        String authKey = TranslationService.getDeepLApiKey(translateRequest);
+        String targetLocale = translateRequest.targetLanguage().locale();
+
+        // The translation memory lookups may fault pages of the mapped index in from the disk, not on the event loop
+        return Mono.fromCallable(() -> translationService.prepare(translateRequest, authKey, isBlank(authKey) ? "loopback" : "deepl"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(preparedRequest -> {
+                    Mono<List<String>> translatedTexts = isBlank(authKey)
+                            ? getLoopbackTranslations(preparedRequest.engineTexts(), targetLocale)
+                            : getDeepLTranslations(authKey, preparedRequest.engineTexts(), targetLocale);
+
+                    // A failed, cancelled (disconnected client, cancelled job) or timed out engine call is refunded
+                    AtomicBoolean translated = new AtomicBoolean();
+                    return translatedTexts
+                            .doOnNext(texts -> translated.set(true))
+                            .doFinally(signal -> {
+                                if (!translated.get()) {
+                                    translationService.refund(preparedRequest);
+                                }
+                            })
+                            .map(texts -> translationService.assemble(preparedRequest, texts));
+                });
+    }
+
+    private Mono<List<String>> getLoopbackTranslations(List<String> texts, String targetLocale) {
+        // Translation simulation loopback (it only adds the target locale to the input segments)
+        // Simulating work without blocking a thread
+        logger.info("Translating...");
+        return Mono.delay(Duration.ofSeconds(1))
+                .map(ignored -> texts.stream().map(text -> "%s [%s]".formatted(text, targetLocale)).toList());
+    }
+
+    private Mono<List<String>> getDeepLTranslations(String authKey, List<String> texts, String targetLocale) {
+        String baseUrl = authKey.endsWith(":fx") ? "https://api-free.deepl.com" : "https://api.deepl.com";
+
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < texts.size(); from += ENGINE_BATCH_SIZE) {
+            batches.add(texts.subList(from, Math.min(from + ENGINE_BATCH_SIZE, texts.size())));
+        }
+
+        // The batches are sent one by one, a cancelled translation does not send the remaining ones
+        String targetLang = TranslationService.getDeepLTargetLanguage(targetLocale);
+        return Flux.fromIterable(batches)
+                .concatMap(batch -> webClient.post()
+                        .uri(baseUrl + "/v2/translate")
+                        .header(AUTHORIZATION, "DeepL-Auth-Key " + authKey)
+                        .bodyValue(new DeepLRequest(batch, targetLang))
+                        .retrieve()
+                        .bodyToMono(DeepLResponse.class))
+                .concatMapIterable(DeepLResponse::translations)
+                .map(DeepLTranslation::text)
+                .collectList();
+    }
+
+    private record DeepLRequest(List<String> text, @JsonProperty("target_lang") String targetLang) {
+    }
+
+    private record DeepLResponse(List<DeepLTranslation> translations) {
+    }
+
+    private record DeepLTranslation(String text) {
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.phrase.custom.adapter.service;
+
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Prepares the segment texts for the engine and restores the engine output.
+ * <p>
+ * The inline tags ({@code <b>}, {@code </b>}, {@code <br/>}), placeholders ({@code {name}}, {@code {{name}}},
+ * {@code ${name}}, {@code %s}, {@code %1$d}) and URLs are replaced by compact tokens ({@code ⟦0⟧}, {@code ⟦1⟧}, ...)
+ * so that the engine cannot translate or break them, the whitespace runs are collapsed into a single space and
+ * the leading and trailing whitespace is kept aside. After the engine call the tokens and the whitespace are put back.
+ * The token brackets already in the text are protected the same way, so they cannot be taken for tokens.
+ * <p>
+ * A segment without any letter outside the tags and placeholders (numbers, URLs, tag-only text) or without a text
+ * needs no translation, it is returned as is and never sent to the engine.
+ * <p>
+ * Everything is done in a single pass over each text, it runs on every segment of every request.
+ */
+@Component
+public class SegmentProcessor {
+
+    static final char TOKEN_START = '⟦';
+
+    static final char TOKEN_END = '⟧';
+
+    private static final String[] NO_PLACEHOLDERS = new String[0];
+
+    private static final PreparedSegment NO_TEXT = new PreparedSegment("", false, NO_PLACEHOLDERS, "", "");
+
+    /**
+     * @param text         the engine text when translatable, the original text (empty for a segment without text) otherwise
+     * @param placeholders the tags and placeholders replaced by the tokens, indexed by the token number
+     */
+    public record PreparedSegment(@NotNull String text, boolean translatable, @NotNull String[] placeholders,
+                                  @NotNull String leadingWhitespace, @NotNull String trailingWhitespace) {
+    }
+
+    public @NotNull List<PreparedSegment> prepare(@NotNull List<TranslateRequest.Segment> segments) {
+        List<PreparedSegment> preparedSegments = new ArrayList<>(segments.size());
+        StringBuilder buffer = new StringBuilder();
+        for (TranslateRequest.Segment segment : segments) {
+            preparedSegments.add(isNull(segment.text()) ? NO_TEXT : prepare(segment.text(), buffer));
+        }
+        return preparedSegments;
+    }
+
+    @NotNull PreparedSegment prepare(@NotNull String text, @NotNull StringBuilder buffer) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+
+        buffer.setLength(0);
+        List<String> placeholders = null;
+        boolean hasLetter = false;
+        boolean pendingSpace = false;
+
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (pendingSpace) {
+                buffer.append(' ');
+                pendingSpace = false;
+            }
+
+            int placeholderEnd = findPlaceholderEnd(text, i, end);
+            if (placeholderEnd > i) {
+                if (isNull(placeholders)) {
+                    placeholders = new ArrayList<>();
+                }
+                buffer.append(TOKEN_START).append(placeholders.size()).append(TOKEN_END);
+                placeholders.add(text.substring(i, placeholderEnd));
+                i = placeholderEnd;
+                continue;
+            }
+
+            hasLetter |= Character.isLetter(c);
+            buffer.append(c);
+            i++;
+        }
+
+        if (!hasLetter) {
+            return new PreparedSegment(text, false, NO_PLACEHOLDERS, "", "");
+        }
+
+        return new PreparedSegment(
+                buffer.toString(),
+                true,
+                isNull(placeholders) ? NO_PLACEHOLDERS : placeholders.toArray(String[]::new),
+                text.substring(0, start),
+                text.substring(end)
+        );
+    }
+
+    /**
+     * Prepares an existing translation of the source segment the same way, with the tokens numbered
+     * after the matching placeholders of the source, so that it can be restored like an engine output.
+     *
+     * @return null when the translation has no letter or has a tag or placeholder which the source does not have
+     */
+    @Nullable String prepareTranslation(@NotNull PreparedSegment source, @NotNull String translatedText, @NotNull StringBuilder buffer) {
+        PreparedSegment translation = prepare(translatedText, buffer);
+        if (!translation.translatable()) {
+            return null;
+        }
+
+        String[] placeholders = translation.placeholders();
+        if (placeholders.length == 0) {
+            return translation.text();
+        }
+
+        String text = translation.text();
+        String[] sourcePlaceholders = source.placeholders();
+        boolean[] used = new boolean[sourcePlaceholders.length];
+        buffer.setLength(0);
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == TOKEN_START) {
+                int tokenEnd = text.indexOf(TOKEN_END, i + 1);
+                int index = tokenEnd < 0 ? -1 : parseIndex(text, i + 1, tokenEnd);
+                if (index >= 0 && index < placeholders.length) {
+                    int sourceIndex = findUnused(sourcePlaceholders, used, placeholders[index]);
+                    if (sourceIndex < 0) {
+                        return null;
+                    }
+                    used[sourceIndex] = true;
+                    buffer.append(TOKEN_START).append(sourceIndex).append(TOKEN_END);
+                    i = tokenEnd + 1;
+                    continue;
+                }
+            }
+            buffer.append(c);
+            i++;
+        }
+        return buffer.toString();
+    }
+
+    public @NotNull String restore(@NotNull PreparedSegment preparedSegment, @NotNull String translatedText) {
+        if (!preparedSegment.translatable()) {
+            return preparedSegment.text();
+        }
+
+        String[] placeholders = preparedSegment.placeholders();
+        if (placeholders.length == 0 && preparedSegment.leadingWhitespace().isEmpty() && preparedSegment.trailingWhitespace().isEmpty()) {
+            return translatedText;
+        }
+
+        StringBuilder restored = new StringBuilder(translatedText.length() + 16 * placeholders.length)
+                .append(preparedSegment.leadingWhitespace());
+        boolean[] used = new boolean[placeholders.length];
+        int i = 0;
+        while (i < translatedText.length()) {
+            char c = translatedText.charAt(i);
+            if (c == TOKEN_START) {
+                int tokenEnd = translatedText.indexOf(TOKEN_END, i + 1);
+                int index = tokenEnd < 0 ? -1 : parseIndex(translatedText, i + 1, tokenEnd);
+                if (index >= 0 && index < placeholders.length) {
+                    restored.append(placeholders[index]);
+                    used[index] = true;
+                    i = tokenEnd + 1;
+                    continue;
+                }
+            }
+            restored.append(c);
+            i++;
+        }
+
+        // Keep the tags the engine dropped, Phrase would report them as missing otherwise
+        for (int index = 0; index < placeholders.length; index++) {
+            if (!used[index]) {
+                restored.append(placeholders[index]);
+            }
+        }
+
+        return restored.append(preparedSegment.trailingWhitespace()).toString();
+    }
+
+    /**
+     * @return the end index (exclusive) of the tag, placeholder or URL starting at the given index, or the given index if there is none
+     */
+    private static int findPlaceholderEnd(String text, int index, int end) {
+        char c = text.charAt(index);
+        char next = index + 1 < end ? text.charAt(index + 1) : 0;
+        return switch (c) {
+            case '<' -> Character.isLetter(next) || next == '/' || next == '!' || next == '?'
+                    ? endAfter(text, text.indexOf('>', index + 1), index, end)
+                    : index;
+            case '{' -> next == '{'
+                    ? findIdentifierEnd(text, index + 2, end, "}}", index)
+                    : findIdentifierEnd(text, index + 1, end, "}", index);
+            case '$' -> next == '{' ? findIdentifierEnd(text, index + 2, end, "}", index) : index;
+            case '%' -> findFormatSpecifierEnd(text, index + 1, end, index);
+            case TOKEN_START, TOKEN_END -> index + 1;
+            case 'h' -> (text.startsWith("http://", index) || text.startsWith("https://", index))
+                    && (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1)))
+                    ? findUrlEnd(text, index, end)
+                    : index;
+            default -> index;
+        };
+    }
+
+    private static int endAfter(String text, int closingIndex, int index, int end) {
+        return closingIndex < 0 || closingIndex >= end ? index : closingIndex + 1;
+    }
+
+    private static int findIdentifierEnd(String text, int from, int end, String closing, int index) {
+        int i = from;
+        while (i < end && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_' || text.charAt(i) == '.' || text.charAt(i) == '-')) {
+            i++;
+        }
+        return i > from && text.startsWith(closing, i) && i + closing.length() <= end ? i + closing.length() : index;
+    }
+
+    private static int findFormatSpecifierEnd(String text, int from, int end, int index) {
+        // %[argument$][flags][width][.precision]conversion
+        int i = from;
+        while (i < end && (Character.isDigit(text.charAt(i)) || "$-+#.".indexOf(text.charAt(i)) >= 0)) {
+            i++;
+        }
+        return i < end && "sdfiuxXeEgGc@".indexOf(text.charAt(i)) >= 0 ? i + 1 : index;
+    }
+
+    private static int findUrlEnd(String text, int index, int end) {
+        int i = index;
+        while (i < end && !Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        // Trailing punctuation belongs to the sentence
+        while (i > index && ".,;:!?)".indexOf(text.charAt(i - 1)) >= 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int findUnused(String[] placeholders, boolean[] used, String placeholder) {
+        for (int index = 0; index < placeholders.length; index++) {
+            if (!used[index] && placeholders[index].equals(placeholder)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseIndex(String text, int from, int to) {
+        if (from == to || to - from > 4) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+}
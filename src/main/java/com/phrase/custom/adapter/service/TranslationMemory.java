@@ -0,0 +1,86 @@
+package com.phrase.custom.adapter.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static java.util.Objects.isNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Serves the translations of the translation memory ({@code adapter.tm.index-file}, built by {@link TranslationMemoryImporter})
+ * before the engine is called.
+ * <p>
+ * The index file is checked every {@code adapter.tm.check-interval}. When it has been replaced (it has another build id),
+ * the new index is mapped and swapped in, the lookups in progress finish on the old one. The file must be replaced by a move
+ * (as the importer does), not rewritten in place.
+ */
+@Component
+public class TranslationMemory {
+
+    private final Logger logger = LoggerFactory.getLogger(TranslationMemory.class);
+
+    private final Path indexFile;
+
+    private volatile TranslationMemoryIndex index;
+
+    private Object indexFileVersion;
+
+    public TranslationMemory(@Value("${adapter.tm.index-file:}") String indexFile) {
+        this.indexFile = isBlank(indexFile) ? null : Path.of(indexFile);
+        reload();
+    }
+
+    /**
+     * @param text the prepared source text, see {@link SegmentProcessor}
+     * @return the prepared translation or null if there is none
+     */
+    public @Nullable String lookup(@NotNull String sourceLocale, @NotNull String targetLocale, @NotNull String text) {
+        TranslationMemoryIndex currentIndex = index;
+        return isNull(currentIndex) ? null : currentIndex.lookup(sourceLocale, targetLocale, text);
+    }
+
+    @Scheduled(fixedDelayString = "${adapter.tm.check-interval:PT30S}")
+    public final synchronized void reload() {
+        if (isNull(indexFile)) {
+            return;
+        }
+
+        Object version;
+        try {
+            version = TranslationMemoryIndex.readBuildId(indexFile);
+        } catch (NoSuchFileException e) {
+            version = "missing";
+        } catch (IOException e) {
+            version = "unreadable";
+        }
+        if (version.equals(indexFileVersion)) {
+            return;
+        }
+        indexFileVersion = version;
+
+        if ("missing".equals(version)) {
+            logger.warn("Translation memory '{}' not found", indexFile);
+            return;
+        }
+
+        try {
+            // The old index is unmapped by the garbage collector once no lookup uses it
+            index = TranslationMemoryIndex.open(indexFile);
+            // The file may have been replaced again since its header was read
+            indexFileVersion = index.getBuildId();
+            logger.info("Loaded the translation memory '{}' with {} translations", indexFile, index.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not load the translation memory '{}'", indexFile, e);
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package com.phrase.custom.adapter.service;
+
+import com.phrase.custom.adapter.service.SegmentProcessor.PreparedSegment;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.text.StringEscapeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.phrase.custom.adapter.service.TranslationMemoryIndex.HEADER_BYTES;
+import static com.phrase.custom.adapter.service.TranslationMemoryIndex.MAGIC;
+import static com.phrase.custom.adapter.service.TranslationMemoryIndex.VERSION;
+import static com.phrase.custom.adapter.service.TranslationMemoryIndex.MAX_RECORD_BYTES;
+import static com.phrase.custom.adapter.service.TranslationMemoryIndex.SLOT_BYTES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Compiles TMX and TSV translation memories into a {@link TranslationMemoryIndex} file, offline:
+ * {@code ./gradlew importTm --args="<index file> <tmx or tsv file>..."}.
+ * <p>
+ * The texts are prepared by the {@link SegmentProcessor} like the request segments, so the whitespace and
+ * the tags and placeholders do not have to match exactly. The translations with a tag or placeholder
+ * missing in the source are skipped. A TMX unit gives the translations from its {@code srclang} to all its other
+ * languages ({@code *all*}: between all its languages). A TSV line is {@code source locale, target locale,
+ * source text, target text} with {@code \t}, {@code \n} and {@code \\} escaped.
+ * <p>
+ * The records are streamed to a temporary file, only the hashes and the positions are kept on the heap (16 bytes
+ * per translation). The index is written next to the target file and moved over it atomically, so a running
+ * adapter can swap to it, see {@link TranslationMemory}. Of the translations with the same key the last one wins.
+ */
+public class TranslationMemoryImporter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranslationMemoryImporter.class);
+
+    private final SegmentProcessor segmentProcessor = new SegmentProcessor();
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private final Path indexFile;
+
+    private final Path recordFile;
+
+    private final DataOutputStream records;
+
+    private long recordBytes;
+
+    private long[] hashes = new long[1024];
+
+    private long[] positions = new long[1024];
+
+    private int count;
+
+    private long skipped;
+
+    public TranslationMemoryImporter(@NotNull Path indexFile) throws IOException {
+        this.indexFile = indexFile.toAbsolutePath();
+        this.recordFile = Files.createTempFile(this.indexFile.getParent(), this.indexFile.getFileName().toString(), ".records");
+        this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordFile), 1 << 16));
+    }
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length < 2) {
+            System.err.println("Usage: TranslationMemoryImporter <index file> <tmx or tsv file>...");
+            System.exit(2);
+        }
+
+        try (TranslationMemoryImporter importer = new TranslationMemoryImporter(Path.of(args[0]))) {
+            for (String file : Arrays.copyOfRange(args, 1, args.length)) {
+                importer.importFile(Path.of(file));
+            }
+            importer.build();
+        }
+    }
+
+    public void importFile(@NotNull Path file) throws IOException, XMLStreamException {
+        long countBefore = count;
+        long skippedBefore = skipped;
+        if (Strings.CI.endsWith(file.toString(), ".tmx")) {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                importTmx(inputStream);
+            }
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+                importTsv(reader);
+            }
+        }
+        logger.info("Imported {} translations from '{}', skipped {}", count - countBefore, file, skipped - skippedBefore);
+    }
+
+    void importTmx(InputStream inputStream) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+
+        String headerSourceLanguage = "*all*";
+        String sourceLanguage = null;
+        String language = null;
+        List<String[]> variants = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        boolean inSegment = false;
+
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamReader.START_ELEMENT -> {
+                        switch (reader.getLocalName()) {
+                            case "header" -> headerSourceLanguage = getAttribute(reader, "srclang", headerSourceLanguage);
+                            case "tu" -> {
+                                sourceLanguage = getAttribute(reader, "srclang", headerSourceLanguage);
+                                variants.clear();
+                            }
+                            // TMX 1.1 uses lang instead of xml:lang
+                            case "tuv" -> language = getAttribute(reader, "lang", reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang"));
+                            case "seg" -> {
+                                segment.setLength(0);
+                                inSegment = true;
+                            }
+                            default -> {
+                                // The inline elements (bpt, ept, ph, it, hi) keep their text, the native codes are the tags
+                            }
+                        }
+                    }
+                    case XMLStreamReader.CHARACTERS, XMLStreamReader.CDATA, XMLStreamReader.SPACE -> {
+                        if (inSegment) {
+                            segment.append(reader.getText());
+                        }
+                    }
+                    case XMLStreamReader.END_ELEMENT -> {
+                        if ("seg".equals(reader.getLocalName())) {
+                            inSegment = false;
+                            if (nonNull(language)) {
+                                variants.add(new String[]{language, segment.toString()});
+                            }
+                        } else if ("tu".equals(reader.getLocalName())) {
+                            addVariants(sourceLanguage, variants);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void addVariants(String sourceLanguage, List<String[]> variants) {
+        boolean allSources = "*all*".equals(sourceLanguage);
+        for (String[] source : variants) {
+            if (!allSources && !source[0].equalsIgnoreCase(sourceLanguage)) {
+                continue;
+            }
+            for (String[] target : variants) {
+                if (!target[0].equalsIgnoreCase(source[0])) {
+                    add(source[0], target[0], source[1], target[1]);
+                }
+            }
+        }
+    }
+
+    void importTsv(BufferedReader reader) throws IOException {
+        String line;
+        while (nonNull(line = reader.readLine())) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t", -1);
+            if (columns.length != 4) {
+                skipped++;
+                continue;
+            }
+            add(columns[0], columns[1], StringEscapeUtils.unescapeJava(columns[2]), StringEscapeUtils.unescapeJava(columns[3]));
+        }
+    }
+
+    /**
+     * @return false if the translation was skipped
+     */
+    public boolean add(@NotNull String sourceLocale, @NotNull String targetLocale, @NotNull String sourceText, @NotNull String targetText) {
+        PreparedSegment source = segmentProcessor.prepare(sourceText, buffer);
+        // The segments without a letter are never sent to the engine nor looked up
+        String translation = source.translatable() ? segmentProcessor.prepareTranslation(source, targetText, buffer) : null;
+        if (isNull(translation)) {
+            skipped++;
+            return false;
+        }
+
+        byte[] key = TranslationMemoryIndex.key(sourceLocale, targetLocale, source.text());
+        byte[] value = translation.getBytes(UTF_8);
+        if (2 * Integer.BYTES + key.length + value.length > MAX_RECORD_BYTES) {
+            skipped++;
+            return false;
+        }
+
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, count * 2);
+            positions = Arrays.copyOf(positions, count * 2);
+        }
+        hashes[count] = TranslationMemoryIndex.hash(key);
+        positions[count] = recordBytes;
+        count++;
+
+        try {
+            records.writeInt(key.length);
+            records.write(key);
+            records.writeInt(value.length);
+            records.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordBytes += 2 * Integer.BYTES + key.length + value.length;
+        return true;
+    }
+
+    /**
+     * Writes the index file.
+     *
+     * @return the number of the translations in the index
+     */
+    public long build() throws IOException {
+        records.close();
+
+        // At most half of the slots are used, the probe sequences stay short
+        long slotCount = Long.highestOneBit(Math.max(1, 2L * count - 1)) << 1;
+        long recordsStart = HEADER_BYTES + slotCount * SLOT_BYTES;
+        long entries = 0;
+
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel index = FileChannel.open(tempFile, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+             FileChannel recordChannel = FileChannel.open(recordFile, READ)) {
+            MappedByteBuffer[] slots = TranslationMemoryIndex.map(index, MapMode.READ_WRITE, recordsStart, TranslationMemoryIndex.CHUNK_SHIFT);
+            for (int i = 0; i < count; i++) {
+                if (putSlot(slots, slotCount, hashes[i], recordsStart + positions[i])) {
+                    entries++;
+                }
+            }
+
+            slots[0].putInt(0, MAGIC).putInt(4, VERSION).putLong(8, slotCount).putLong(16, entries).putLong(24, recordsStart)
+                    .putLong(32, new SecureRandom().nextLong());
+            for (MappedByteBuffer chunk : slots) {
+                chunk.force();
+            }
+
+            long transferred = 0;
+            while (transferred < recordBytes) {
+                transferred += index.transferFrom(recordChannel, recordsStart + transferred, recordBytes - transferred);
+            }
+            index.force(true);
+        }
+
+        Files.move(tempFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        logger.info("Built the translation memory index '{}' with {} translations, skipped {}", indexFile, entries, skipped);
+        return entries;
+    }
+
+    /**
+     * @return false if the slot of the same key (hash) has been replaced
+     */
+    private static boolean putSlot(MappedByteBuffer[] slots, long slotCount, long hash, long recordPosition) {
+        int chunkShift = TranslationMemoryIndex.CHUNK_SHIFT;
+        long chunkMask = (1L << chunkShift) - 1;
+        long slot = hash & (slotCount - 1);
+        while (true) {
+            long slotPosition = HEADER_BYTES + slot * SLOT_BYTES;
+            MappedByteBuffer chunk = slots[(int) (slotPosition >>> chunkShift)];
+            int offset = (int) (slotPosition & chunkMask);
+            long existingPosition = chunk.getLong(offset + Long.BYTES);
+            // A 64-bit hash collision of two different keys only makes the lookup of the earlier one miss,
+            // the lookup compares the keys
+            if (existingPosition == 0 || chunk.getLong(offset) == hash) {
+                chunk.putLong(offset, hash).putLong(offset + Long.BYTES, recordPosition);
+                return existingPosition == 0;
+            }
+            slot = (slot + 1) & (slotCount - 1);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+        Files.deleteIfExists(recordFile);
+    }
+
+    private static String getAttribute(XMLStreamReader reader, String name, String defaultValue) {
+        String value = reader.getAttributeValue(null, name);
+        return isNull(value) ? defaultValue : value;
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.phrase.custom.adapter.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read-only exact-match index of a translation memory, memory-mapped from the file built by {@link TranslationMemoryImporter}.
+ * <p>
+ * The file is an open-addressing hash table: a header (with a random id of the build, so that a replaced file is
+ * recognized whatever its timestamps), the slots ({@code 64-bit FNV-1a hash of the key, record position})
+ * and the records ({@code key length, key, translation length, translation}). The key is
+ * {@code source locale \0 target locale \0 prepared text} in UTF-8. A lookup reads one slot (usually) and compares
+ * the key in place, only the found translation is copied to the heap. The pages are loaded by the OS on demand,
+ * so the index may be much larger than the heap.
+ * <p>
+ * A {@link MappedByteBuffer} is limited to 2 GB, the file is mapped in chunks overlapping by the maximum record size,
+ * so that every slot and record can be read from a single chunk.
+ */
+public class TranslationMemoryIndex {
+
+    static final int MAGIC = 0x50544D31; // PTM1
+
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 40;
+
+    static final int SLOT_BYTES = 16;
+
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    static final int CHUNK_SHIFT = 30;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final MappedByteBuffer[] chunks;
+
+    private final int chunkShift;
+
+    private final long chunkMask;
+
+    private final long slotMask;
+
+    private final long size;
+
+    private final long buildId;
+
+    private TranslationMemoryIndex(MappedByteBuffer[] chunks, int chunkShift) {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        if (chunks.length == 0 || getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a translation memory index of version %d, import it again".formatted(VERSION));
+        }
+        this.slotMask = getLong(8) - 1;
+        this.size = getLong(16);
+        this.buildId = getLong(32);
+    }
+
+    public static @NotNull TranslationMemoryIndex open(@NotNull Path indexFile) throws IOException {
+        return open(indexFile, CHUNK_SHIFT);
+    }
+
+    static @NotNull TranslationMemoryIndex open(@NotNull Path indexFile, int chunkShift) throws IOException {
+        // The mapping stays valid after the channel is closed and after the file is replaced
+        try (FileChannel channel = FileChannel.open(indexFile, READ)) {
+            return new TranslationMemoryIndex(map(channel, MapMode.READ_ONLY, channel.size(), chunkShift), chunkShift);
+        }
+    }
+
+    /**
+     * Reads only the header, to check whether the file has been replaced.
+     *
+     * @throws NoSuchFileException when there is no index file
+     */
+    public static long readBuildId(@NotNull Path indexFile) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(indexFile)) {
+            ByteBuffer header = ByteBuffer.wrap(inputStream.readNBytes(HEADER_BYTES));
+            if (header.limit() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a translation memory index of version %d".formatted(VERSION));
+            }
+            return header.getLong(32);
+        }
+    }
+
+    static MappedByteBuffer[] map(FileChannel channel, MapMode mode, long size, int chunkShift) throws IOException {
+        long chunkSize = 1L << chunkShift;
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) >>> chunkShift)];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            long position = chunk * chunkSize;
+            chunks[chunk] = channel.map(mode, position, Math.min(chunkSize + MAX_RECORD_BYTES, size - position));
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the number of the translations
+     */
+    public long size() {
+        return size;
+    }
+
+    public long getBuildId() {
+        return buildId;
+    }
+
+    /**
+     * @param text the prepared source text, see {@link SegmentProcessor}
+     * @return the prepared translation or null if there is none
+     */
+    public @Nullable String lookup(@NotNull String sourceLocale, @NotNull String targetLocale, @NotNull String text) {
+        byte[] key = key(sourceLocale, targetLocale, text);
+        long hash = hash(key);
+        long slot = hash & slotMask;
+        for (long probe = 0; probe <= slotMask; probe++) {
+            long slotPosition = HEADER_BYTES + slot * SLOT_BYTES;
+            long recordPosition = getLong(slotPosition + Long.BYTES);
+            if (recordPosition == 0) {
+                return null;
+            }
+            if (getLong(slotPosition) == hash && keyEquals(recordPosition, key)) {
+                return getString(recordPosition + Integer.BYTES + key.length);
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return null;
+    }
+
+    static byte[] key(String sourceLocale, String targetLocale, String text) {
+        return (normalizeLocale(sourceLocale) + '\0' + normalizeLocale(targetLocale) + '\0' + text).getBytes(UTF_8);
+    }
+
+    /**
+     * Phrase sends {@code en_us}, the translation memories mostly use {@code en-US}.
+     */
+    static String normalizeLocale(String locale) {
+        return locale.strip().replace('-', '_').toLowerCase(Locale.ROOT);
+    }
+
+    static long hash(byte[] key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private boolean keyEquals(long recordPosition, byte[] key) {
+        ByteBuffer chunk = chunks[(int) (recordPosition >>> chunkShift)];
+        int offset = (int) (recordPosition & chunkMask);
+        return chunk.getInt(offset) == key.length
+                && chunk.slice(offset + Integer.BYTES, key.length).mismatch(ByteBuffer.wrap(key)) < 0;
+    }
+
+    private String getString(long position) {
+        ByteBuffer chunk = chunks[(int) (position >>> chunkShift)];
+        int offset = (int) (position & chunkMask);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> chunkShift)].getInt((int) (position & chunkMask));
+    }
+
+    private long getLong(long position) {
+        return chunks[(int) (position >>> chunkShift)].getLong((int) (position & chunkMask));
+    }
+
+}
@@ -1,28 +1,59 @@
 package com.phrase.custom.adapter.service;
 
 import com.deepl.api.DeepLClient;
-import com.deepl.api.TextResult;
 import com.phrase.custom.adapter.dto.request.TranslateRequest;
 import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.service.CharacterBudget.Account;
+import com.phrase.custom.adapter.service.CharacterBudget.Charge;
+import com.phrase.custom.adapter.service.SegmentProcessor.PreparedSegment;
+import com.phrase.custom.adapter.tracing.RequestTrace;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 import static java.lang.Thread.sleep;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 @Service
 public class TranslationService {
 
+    // DeepL accepts at most 50 texts per request
+    private static final int ENGINE_BATCH_SIZE = 50;
+
     private final Logger logger = LoggerFactory.getLogger(TranslationService.class);
 
+    private final ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    private final SegmentProcessor segmentProcessor;
+
+    private final CharacterBudget characterBudget;
+
+    private final TranslationMemory translationMemory;
+
+    public TranslationService(@Qualifier("threadPoolTaskExecutor") ThreadPoolTaskExecutor threadPoolTaskExecutor,
+                              SegmentProcessor segmentProcessor, CharacterBudget characterBudget, TranslationMemory translationMemory) {
+        this.threadPoolTaskExecutor = threadPoolTaskExecutor;
+        this.segmentProcessor = segmentProcessor;
+        this.characterBudget = characterBudget;
+        this.translationMemory = translationMemory;
+    }
+
     public @NotNull TranslateResponse translate(TranslateRequest translateRequest) {
         try {
             // Call your engine here
@@ -37,9 +68,14 @@ public class TranslationService {
         return getTranslateResponse(translateRequest);
     }
 
-    @Async("threadPoolTaskExecutor")
+    /**
+     * Runs the translation on the thread pool. Cancelling (or timing out) the returned future interrupts
+     * the running translation and removes a still queued one, so the executor capacity is freed immediately.
+     */
     public @NotNull CompletableFuture<AsyncJobResult> translateAsync(TranslateRequest translateRequest) {
-        return CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<AsyncJobResult> job = new CompletableFuture<>();
+
+        Future<?> task = threadPoolTaskExecutor.submit(() -> {
             TranslateResponse translateResponse = null;
             String failureDetail = null;
 
@@ -54,27 +90,134 @@ public class TranslationService {
                 failureDetail = "translation failed: %s".formatted(e);
             }
 
-            return new AsyncJobResult(translateResponse, failureDetail);
+            job.complete(new AsyncJobResult(translateResponse, failureDetail));
+        });
+
+        job.whenComplete((asyncJobResult, throwable) -> {
+            if (nonNull(throwable) && task.cancel(true)) {
+                threadPoolTaskExecutor.getThreadPoolExecutor().purge();
+            }
         });
+
+        return job;
     }
 
     private @NotNull TranslateResponse getTranslateResponse(TranslateRequest translateRequest) {
         // Translation simulation loopback (it only adds the target locale to the input segments)
 
-        String authKey = isNull(translateRequest.metadata()) ? null : translateRequest.metadata().getOrDefault("deepl_api_key", "").toString();
+        // The phases are timed only for the traced sync requests
+        long phaseStart = RequestTrace.start();
+        String authKey = getDeepLApiKey(translateRequest);
         DeepLClient deepLClient = isBlank(authKey) ? null : new DeepLClient(authKey);
+        phaseStart = RequestTrace.end("client", phaseStart);
+
+        PreparedRequest preparedRequest = prepare(translateRequest, authKey, isNull(deepLClient) ? "loopback" : "deepl");
+        phaseStart = RequestTrace.end("prepare", phaseStart);
+
+        String targetLocale = translateRequest.targetLanguage().locale();
+        List<String> translatedTexts;
+        try {
+            translatedTexts = isNull(deepLClient)
+                    ? preparedRequest.engineTexts().stream().map(text -> "%s [%s]".formatted(text, targetLocale)).toList()
+                    : getDeepLTranslations(deepLClient, preparedRequest.engineTexts(), getDeepLTargetLanguage(targetLocale));
+        } catch (RuntimeException e) {
+            refund(preparedRequest);
+            throw e;
+        }
+        phaseStart = RequestTrace.end("engine", phaseStart);
 
-        List<TranslateResponse.TranslatedSegment> translatedSegments = isNull(deepLClient)
-                ? translateRequest.segments().stream()
-                .map(s ->
-                        new TranslateResponse.TranslatedSegment(
-                                s.idx(),
-                                s.text(),
-                                "%s [%s]".formatted(s.text(), translateRequest.targetLanguage().locale()),
-                                s.metadata()
-                        )
-                ).toList()
-                : getDeepLTranslations(deepLClient, translateRequest.segments(), translateRequest.targetLanguage().locale());
+        TranslateResponse translateResponse = assemble(preparedRequest, translatedTexts);
+        RequestTrace.end("assemble", phaseStart);
+        return translateResponse;
+    }
+
+    public static @Nullable String getDeepLApiKey(TranslateRequest translateRequest) {
+        return isNull(translateRequest.metadata()) ? null : translateRequest.metadata().getOrDefault("deepl_api_key", "").toString();
+    }
+
+    /**
+     * @return the DeepL target language of the Phrase locale, e.g. {@code zh_tw} is {@code ZH-HANT}
+     */
+    public static @NotNull String getDeepLTargetLanguage(@NotNull String locale) {
+        return switch (locale) {
+            // DeepL rejects these target languages without the variant
+            case "en" -> "EN-US";
+            case "pt" -> "PT-PT";
+            case "zh", "zh_cn" -> "ZH-HANS";
+            case "zh_tw", "zh_hk" -> "ZH-HANT";
+            default -> locale.replace('_', '-').toUpperCase(Locale.ROOT);
+        };
+    }
+
+    /**
+     * Prepares the texts to be sent to the engine and charges them to the character budget.
+     * <p>
+     * Only the segments needing translation go to the engine, with the tags and placeholders protected.
+     * The texts found in the translation memory are not sent at all, the repeated texts are sent (and billed) only once.
+     *
+     * @throws QuotaExceededException when the engine texts do not fit into the character budget
+     */
+    public @NotNull PreparedRequest prepare(TranslateRequest translateRequest, @Nullable String apiKey, String engine) {
+        List<PreparedSegment> preparedSegments = segmentProcessor.prepare(translateRequest.segments());
+        String sourceLocale = translateRequest.sourceLanguage().locale();
+        String targetLocale = translateRequest.targetLanguage().locale();
+        Map<String, String> memoryTexts = new HashMap<>();
+        Map<String, Integer> engineTextIndexes = new HashMap<>();
+        List<String> engineTexts = new ArrayList<>(preparedSegments.size());
+        long engineCharacters = 0;
+        for (PreparedSegment preparedSegment : preparedSegments) {
+            String text = preparedSegment.text();
+            if (!preparedSegment.translatable() || memoryTexts.containsKey(text) || engineTextIndexes.containsKey(text)) {
+                continue;
+            }
+
+            String memoryText = translationMemory.lookup(sourceLocale, targetLocale, text);
+            if (nonNull(memoryText)) {
+                memoryTexts.put(text, memoryText);
+            } else {
+                engineTextIndexes.put(text, engineTexts.size());
+                engineTexts.add(text);
+                engineCharacters += text.length();
+            }
+        }
+
+        Account account = characterBudget.getAccount(translateRequest.metadata(), apiKey, engine);
+        Charge charge = characterBudget.charge(account, engineCharacters);
+
+        return new PreparedRequest(translateRequest, preparedSegments, memoryTexts, engineTextIndexes, engineTexts, charge);
+    }
+
+    /**
+     * Returns the characters of a failed engine call back to the character budget.
+     */
+    public void refund(PreparedRequest preparedRequest) {
+        characterBudget.refund(preparedRequest.charge());
+    }
+
+    /**
+     * @param translatedTexts the engine output, in the order of {@link PreparedRequest#engineTexts()}
+     */
+    public @NotNull TranslateResponse assemble(PreparedRequest preparedRequest, List<String> translatedTexts) {
+        TranslateRequest translateRequest = preparedRequest.translateRequest();
+        List<TranslateRequest.Segment> segments = translateRequest.segments();
+        List<TranslateResponse.TranslatedSegment> translatedSegments = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            TranslateRequest.Segment segment = segments.get(i);
+            PreparedSegment preparedSegment = preparedRequest.preparedSegments().get(i);
+            String translatedText = segment.text();
+            if (preparedSegment.translatable()) {
+                String memoryText = preparedRequest.memoryTexts().get(preparedSegment.text());
+                translatedText = segmentProcessor.restore(preparedSegment, nonNull(memoryText)
+                        ? memoryText
+                        : translatedTexts.get(preparedRequest.engineTextIndexes().get(preparedSegment.text())));
+            }
+            translatedSegments.add(new TranslateResponse.TranslatedSegment(
+                    segment.idx(),
+                    segment.text(),
+                    translatedText,
+                    segment.metadata()
+            ));
+        }
 
         return new TranslateResponse(
                 translateRequest.sourceLanguage(),
@@ -84,29 +227,46 @@ public class TranslationService {
         );
     }
 
-    private List<TranslateResponse.TranslatedSegment> getDeepLTranslations(DeepLClient client, List<TranslateRequest.Segment> texts, String targetLocale) {
+    private List<String> getDeepLTranslations(DeepLClient client, List<String> texts, String targetLang) {
         try {
-            List<String> translatedTexts = client.translateText(texts.stream().map(TranslateRequest.Segment::text).toList(), null, targetLocale).stream().map(TextResult::getText).toList();
-            List<TranslateResponse.TranslatedSegment> translatedSegments = new ArrayList<>();
-
-            for (int i = 0; i < translatedTexts.size(); i++) {
-                String translatedText = translatedTexts.get(i);
-                TranslateRequest.Segment segment = texts.get(i);
-                translatedSegments.add(new TranslateResponse.TranslatedSegment(
-                        segment.idx(),
-                        segment.text(),
-                        translatedText,
-                        segment.metadata()
-                ));
+            List<String> translatedTexts = new ArrayList<>(texts.size());
+
+            for (int from = 0; from < texts.size(); from += ENGINE_BATCH_SIZE) {
+                // Do not send the remaining batches of a cancelled (abandoned) job to the engine
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("translation cancelled after %d of %d segments".formatted(from, texts.size()));
+                }
+
+                List<String> batch = texts.subList(from, Math.min(from + ENGINE_BATCH_SIZE, texts.size()));
+                client.translateText(batch, null, targetLang).forEach(textResult -> translatedTexts.add(textResult.getText()));
             }
 
-            return translatedSegments;
+            return translatedTexts;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @param memoryTexts the translations from the translation memory by the prepared text
+     * @param charge       the engine characters charged to the character budget
+     */
+    public record PreparedRequest(TranslateRequest translateRequest, List<PreparedSegment> preparedSegments,
+                                  Map<String, String> memoryTexts, Map<String, Integer> engineTextIndexes,
+                                  List<String> engineTexts, Charge charge) {
+    }
+
     public record AsyncJobResult(TranslateResponse translateResponse, String failureDetail) {
+
+        public static AsyncJobResult failed(Throwable throwable) {
+            String failureDetail = switch (throwable) {
+                case CancellationException ignored -> "translation job cancelled";
+                case TimeoutException ignored -> "translation job exceeded its deadline";
+                default -> "translation failed: %s".formatted(throwable);
+            };
+            return new AsyncJobResult(null, failureDetail);
+        }
+
     }
 
 }
@@ -0,0 +1,36 @@
+package com.phrase.custom.adapter.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One phase of a traced request. Committed at the end of the phase, the duration is a field of the event (the event itself has none).
+ */
+@Name(PhaseEvent.NAME)
+@Label("Request Phase")
+@Category({"Phrase Adapter", "Requests"})
+@Description("A phase of a request handled by the adapter")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    public static final String NAME = "com.phrase.custom.adapter.RequestPhase";
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Phase Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long phaseDuration;
+
+}
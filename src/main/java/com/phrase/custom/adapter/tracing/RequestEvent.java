@@ -0,0 +1,35 @@
+package com.phrase.custom.adapter.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A traced request, spanning the whole handling including the response serialization.
+ */
+@Name(RequestEvent.NAME)
+@Label("Request")
+@Category({"Phrase Adapter", "Requests"})
+@Description("A request handled by the adapter with its phase breakdown")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    public static final String NAME = "com.phrase.custom.adapter.Request";
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Phases")
+    @Description("The phase durations in milliseconds, in the Server-Timing format")
+    String phases;
+
+}
@@ -0,0 +1,169 @@
+package com.phrase.custom.adapter.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Phase timings of the request being handled by the current thread, started by the {@link RequestTracingFilter}.
+ * <p>
+ * The code times its phases with {@link #start()} and {@link #end(String, long)}. Without a trace (tracing disabled,
+ * async jobs, reactive mode) this costs one thread local read per phase and nothing is recorded. The same phase
+ * timed repeatedly is summed up. Every phase is also emitted as a {@link PhaseEvent} to a running Flight Recording.
+ */
+public class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+
+    private final String path;
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private final long startNanos = System.nanoTime();
+
+    private String[] phases = new String[8];
+
+    private long[] durations = new long[8];
+
+    private int count;
+
+    private long markNanos;
+
+    private RequestTrace(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    static @NotNull RequestTrace begin(@NotNull String method, @NotNull String path) {
+        RequestTrace trace = new RequestTrace(method, path);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static @Nullable RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the start of a phase, 0 when the request is not traced
+     */
+    public static long start() {
+        return isNull(CURRENT.get()) ? 0 : System.nanoTime();
+    }
+
+    /**
+     * @param start the value of {@link #start()} or of the previous {@link #end(String, long)}
+     * @return the start of the next phase, 0 when the request is not traced
+     */
+    public static long end(@NotNull String phase, long start) {
+        if (start == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        RequestTrace trace = CURRENT.get();
+        if (isNull(trace)) {
+            return 0;
+        }
+        trace.add(phase, now - start);
+        return now;
+    }
+
+    /**
+     * Starts a phase which ends in another callback, see {@link #endMark(String)}.
+     */
+    void mark() {
+        markNanos = System.nanoTime();
+    }
+
+    void endMark(@NotNull String phase) {
+        if (markNanos != 0) {
+            add(phase, System.nanoTime() - markNanos);
+            markNanos = 0;
+        }
+    }
+
+    private void add(String phase, long duration) {
+        int index = 0;
+        while (index < count && !phases[index].equals(phase)) {
+            index++;
+        }
+        if (index == count) {
+            if (count == phases.length) {
+                phases = Arrays.copyOf(phases, count * 2);
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            phases[count++] = phase;
+        }
+        durations[index] += duration;
+
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.method = method;
+            event.path = path;
+            event.phase = phase;
+            event.phaseDuration = duration;
+            event.commit();
+        }
+    }
+
+    public @NotNull String getMethod() {
+        return method;
+    }
+
+    public @NotNull String getPath() {
+        return path;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the durations in milliseconds by phase, in the order of the first occurrence
+     */
+    public @NotNull Map<String, Double> getPhases() {
+        Map<String, Double> phaseMillis = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            phaseMillis.put(phases[i], durations[i] / 1e6);
+        }
+        return phaseMillis;
+    }
+
+    /**
+     * @return the phases so far and the total so far in the {@code Server-Timing} header format,
+     * e.g. {@code prepare;dur=0.412, engine;dur=1001.203, total;dur=1003.877}
+     */
+    public @NotNull String toServerTiming() {
+        StringBuilder serverTiming = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            appendMetric(serverTiming, phases[i], durations[i]);
+        }
+        appendMetric(serverTiming, "total", getElapsedNanos());
+        return serverTiming.toString();
+    }
+
+    private static void appendMetric(StringBuilder serverTiming, String name, long nanos) {
+        if (!serverTiming.isEmpty()) {
+            serverTiming.append(", ");
+        }
+        // Not the default locale, the header needs a decimal point
+        serverTiming.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.phrase.custom.adapter.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Traces every request when {@code adapter.tracing.enabled} is set, see {@link RequestTrace}.
+ * <p>
+ * The filter is always registered and checks the property per request: a condition on the property would be
+ * evaluated once at build time in the AOT-processed image, so tracing could not be enabled at startup there.
+ * <p>
+ * Runs before the authentication, so the whole handling is measured. The response serialization is the time
+ * from the {@code Server-Timing} header being set by the {@link ServerTimingAdvice} to the end of the request,
+ * it is missing in the header but included in the {@link RequestEvent} and the {@link SlowRequestLog}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequestLog;
+
+    private final boolean enabled;
+
+    public RequestTracingFilter(SlowRequestLog slowRequestLog, @Value("${adapter.tracing.enabled:false}") boolean enabled) {
+        this.slowRequestLog = slowRequestLog;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull FilterChain filterChain) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        RequestTrace trace = RequestTrace.begin(request.getMethod(), request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            trace.endMark("serialize");
+            RequestTrace.clear();
+            long totalNanos = trace.getElapsedNanos();
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = trace.getMethod();
+                event.path = trace.getPath();
+                event.status = response.getStatus();
+                event.phases = trace.toServerTiming();
+                event.commit();
+            }
+            slowRequestLog.add(trace, response.getStatus(), totalNanos);
+        }
+    }
+
+}
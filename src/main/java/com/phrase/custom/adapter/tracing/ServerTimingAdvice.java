@@ -0,0 +1,87 @@
+package com.phrase.custom.adapter.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.lang.reflect.Type;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Times the JSON binding of the request body and adds the {@code Server-Timing} header to the traced responses,
+ * just before the body is serialized.
+ * <p>
+ * Like the {@link RequestTracingFilter}, it is always registered and only applies when {@code adapter.tracing.enabled} is set.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ServerTimingAdvice implements RequestBodyAdvice, ResponseBodyAdvice<Object> {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final boolean enabled;
+
+    public ServerTimingAdvice(@Value("${adapter.tracing.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean supports(@NotNull MethodParameter methodParameter, @NotNull Type targetType, @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public @NotNull HttpInputMessage beforeBodyRead(@NotNull HttpInputMessage inputMessage, @NotNull MethodParameter parameter, @NotNull Type targetType,
+                                                    @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestTrace trace = RequestTrace.current();
+        if (nonNull(trace)) {
+            trace.mark();
+        }
+        return inputMessage;
+    }
+
+    @Override
+    public @NotNull Object afterBodyRead(@NotNull Object body, @NotNull HttpInputMessage inputMessage, @NotNull MethodParameter parameter, @NotNull Type targetType,
+                                         @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestTrace trace = RequestTrace.current();
+        if (nonNull(trace)) {
+            trace.endMark("bind");
+        }
+        return body;
+    }
+
+    @Override
+    public @Nullable Object handleEmptyBody(@Nullable Object body, @NotNull HttpInputMessage inputMessage, @NotNull MethodParameter parameter, @NotNull Type targetType,
+                                            @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return afterBodyRead(body, inputMessage, parameter, targetType, converterType);
+    }
+
+    @Override
+    public boolean supports(@NotNull MethodParameter returnType, @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public @Nullable Object beforeBodyWrite(@Nullable Object body, @NotNull MethodParameter returnType, @NotNull MediaType selectedContentType,
+                                            @NotNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                            @NotNull ServerHttpRequest request, @NotNull ServerHttpResponse response) {
+        RequestTrace trace = RequestTrace.current();
+        if (nonNull(trace)) {
+            response.getHeaders().set(SERVER_TIMING_HEADER, trace.toServerTiming());
+            trace.mark();
+        }
+        return body;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.phrase.custom.adapter.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the phase breakdowns of the slowest {@code adapter.tracing.slow-requests} traced requests since the start.
+ * <p>
+ * The fastest kept request is on the top of a heap, a request not slower than it is dropped without locking.
+ */
+@Component
+public class SlowRequestLog {
+
+    private static final Comparator<SlowRequest> BY_TOTAL = Comparator.comparingDouble(SlowRequest::totalMillis);
+
+    private final int capacity;
+
+    private final PriorityQueue<SlowRequest> slowest = new PriorityQueue<>(BY_TOTAL);
+
+    private volatile double thresholdMillis = -1;
+
+    public SlowRequestLog(@Value("${adapter.tracing.slow-requests:20}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param phases the durations in milliseconds by phase
+     */
+    public record SlowRequest(@NotNull String method, @NotNull String path, int status, long startedAt,
+                              double totalMillis, @NotNull Map<String, Double> phases) {
+    }
+
+    void add(@NotNull RequestTrace trace, int status, long totalNanos) {
+        double totalMillis = totalNanos / 1e6;
+        if (capacity <= 0 || totalMillis <= thresholdMillis) {
+            return;
+        }
+
+        SlowRequest slowRequest = new SlowRequest(trace.getMethod(), trace.getPath(), status, trace.getStartMillis(), totalMillis, trace.getPhases());
+        synchronized (slowest) {
+            slowest.add(slowRequest);
+            if (slowest.size() > capacity) {
+                slowest.poll();
+            }
+            if (slowest.size() == capacity) {
+                thresholdMillis = slowest.peek().totalMillis();
+            }
+        }
+    }
+
+    /**
+     * @return the slowest requests, the slowest first
+     */
+    public @NotNull List<SlowRequest> getSlowest() {
+        List<SlowRequest> slowRequests;
+        synchronized (slowest) {
+            slowRequests = new ArrayList<>(slowest);
+        }
+        slowRequests.sort(BY_TOTAL.reversed());
+        return slowRequests;
+    }
+
+}
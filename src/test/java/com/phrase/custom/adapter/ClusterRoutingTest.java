@@ -0,0 +1,123 @@
+package com.phrase.custom.adapter;
+
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.dto.response.ErrorResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.DONE;
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.RUNNING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs two adapter instances on localhost and polls the jobs of one node through the other one.
+ */
+class ClusterRoutingTest {
+
+    private static ConfigurableApplicationContext node1;
+
+    private static ConfigurableApplicationContext node2;
+
+    @BeforeAll
+    static void startNodes() {
+        node2 = startNode("node2", "");
+        node1 = startNode("node1", "node1=http://localhost:0,node2=" + baseUrl(node2));
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        node1.close();
+        node2.close();
+    }
+
+    @Test
+    void asyncJobIsPolledThroughAnotherNode() {
+        String jobId = client(node2).post()
+                .uri("/translateAsync")
+                .body(sampleTranslateRequest())
+                .retrieve()
+                .body(TranslateAsyncResponse.class)
+                .id();
+
+        assertThat(jobId).startsWith("node2.");
+
+        TranslateAsyncStatusResponse status = getStatus(node1, jobId);
+        assertThat(status.status()).isEqualTo(RUNNING);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> getStatus(node1, jobId).status() == DONE);
+
+        TranslateResponse translateResponse = client(node1).get()
+                .uri("/translateAsyncResult/{jobId}", jobId)
+                .retrieve()
+                .body(TranslateResponse.class);
+        assertThat(translateResponse.segments().getFirst().translatedText()).isEqualTo("Hello [de]");
+    }
+
+    @Test
+    void ownerErrorIsPassedOnUnchanged() {
+        assertThatThrownBy(() -> getStatus(node1, "node2.missing-job"))
+                .isInstanceOfSatisfying(HttpServerErrorException.class, exception -> {
+                    assertThat(exception.getStatusCode().value()).isEqualTo(500);
+                    assertThat(exception.getResponseBodyAs(ErrorResponse.class).error())
+                            .startsWith("Application error: No translation job found with id 'node2.missing-job'");
+                });
+    }
+
+    @Test
+    void jobOfUnknownNodeIsNotFound() {
+        assertThatThrownBy(() -> getStatus(node1, "node3.missing-job"))
+                .isInstanceOf(HttpServerErrorException.class)
+                .hasMessageContaining("unknown node 'node3'");
+    }
+
+    private static TranslateAsyncStatusResponse getStatus(ConfigurableApplicationContext node, String jobId) {
+        return client(node).get()
+                .uri("/translateAsyncStatus/{jobId}", jobId)
+                .retrieve()
+                .body(TranslateAsyncStatusResponse.class);
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String nodes) {
+        return new SpringApplicationBuilder(Application.class)
+                .run(
+                        "--server.port=0",
+                        "--adapter.cluster.node-id=" + nodeId,
+                        "--adapter.cluster.nodes=" + nodes
+                );
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext node) {
+        return "http://localhost:" + ((WebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private static RestClient client(ConfigurableApplicationContext node) {
+        return RestClient.create(baseUrl(node));
+    }
+
+    private static TranslateRequest sampleTranslateRequest() {
+        return new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Hello", Map.of("origin", "cluster-test"))),
+                null,
+                Map.of("requestId", "cluster-1")
+        );
+    }
+}
@@ -0,0 +1,144 @@
+package com.phrase.custom.adapter;
+
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.StatusRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.dto.response.StatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.DONE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.countMatches;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Starts the adapter as a separate process, sends it SIGTERM under load and checks in a new process
+ * on the same job store that all the accepted jobs can still be polled.
+ */
+class GracefulShutdownTest {
+
+    private static final int ASYNC_JOBS = 300;
+
+    private static final int SYNC_REQUESTS = 20;
+
+    @TempDir
+    private Path tempDir;
+
+    private final List<Process> processes = new ArrayList<>();
+
+    @AfterEach
+    void stopProcesses() {
+        processes.forEach(Process::destroyForcibly);
+    }
+
+    @Test
+    void acceptedWorkSurvivesSigterm() throws Exception {
+        int port = freePort();
+        Process process = startAdapter(port, "first");
+        RestClient client = RestClient.create("http://localhost:" + port);
+
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < ASYNC_JOBS; i++) {
+            jobIds.add(client.post().uri("/translateAsync").body(sampleTranslateRequest()).retrieve().body(TranslateAsyncResponse.class).id());
+        }
+
+        ExecutorService syncClients = Executors.newFixedThreadPool(SYNC_REQUESTS);
+        List<CompletableFuture<TranslateResponse>> syncResponses = new ArrayList<>();
+        for (int i = 0; i < SYNC_REQUESTS; i++) {
+            syncResponses.add(CompletableFuture.supplyAsync(
+                    () -> client.post().uri("/translate").body(sampleTranslateRequest()).retrieve().body(TranslateResponse.class), syncClients));
+        }
+        // Every sync request logs itself right before it is counted as in flight
+        Path log = tempDir.resolve("first.log");
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> countMatches(new String(Files.readAllBytes(log), UTF_8), "Translate request:") == SYNC_REQUESTS);
+
+        process.destroy();
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> client.post().uri("/status").body(new StatusRequest(null)).retrieve().body(StatusResponse.class).status(),
+                        status -> status == StatusResponse.Status.NOT_OK);
+        assertThatThrownBy(() -> client.post().uri("/translateAsync").body(sampleTranslateRequest()).retrieve().toBodilessEntity())
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+
+        for (CompletableFuture<TranslateResponse> syncResponse : syncResponses) {
+            assertThat(syncResponse.get(30, TimeUnit.SECONDS).segments().getFirst().translatedText()).isEqualTo("Hello [de]");
+        }
+        syncClients.shutdown();
+        assertThat(process.waitFor(60, TimeUnit.SECONDS)).isTrue();
+
+        int restartedPort = freePort();
+        startAdapter(restartedPort, "restarted");
+        RestClient restartedClient = RestClient.create("http://localhost:" + restartedPort);
+        for (String jobId : jobIds) {
+            TranslateAsyncStatusResponse jobStatus = restartedClient.get().uri("/translateAsyncStatus/{jobId}", jobId).retrieve().body(TranslateAsyncStatusResponse.class);
+            assertThat(jobStatus.status()).as("status of jobId %s", jobId).isEqualTo(DONE);
+
+            TranslateResponse translateResponse = restartedClient.get().uri("/translateAsyncResult/{jobId}", jobId).retrieve().body(TranslateResponse.class);
+            assertThat(translateResponse.segments().getFirst().translatedText()).isEqualTo("Hello [de]");
+        }
+    }
+
+    private Process startAdapter(int port, String name) throws Exception {
+        Process process = new ProcessBuilder(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"),
+                Application.class.getName(),
+                "--server.port=" + port,
+                "--adapter.async.job-store-dir=" + tempDir.resolve("jobs"))
+                .redirectErrorStream(true)
+                .redirectOutput(tempDir.resolve(name + ".log").toFile())
+                .start();
+        processes.add(process);
+
+        RestClient client = RestClient.create("http://localhost:" + port);
+        for (int i = 0; i < 600; i++) {
+            try {
+                client.post().uri("/status").body(new StatusRequest(null)).retrieve().toBodilessEntity();
+                return process;
+            } catch (Exception e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Adapter '%s' has not started".formatted(name));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static TranslateRequest sampleTranslateRequest() {
+        return new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Hello", null)),
+                null,
+                Map.of("requestId", "drain-1")
+        );
+    }
+}
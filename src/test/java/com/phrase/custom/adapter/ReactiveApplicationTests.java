@@ -0,0 +1,149 @@
+package com.phrase.custom.adapter;
+
+import com.phrase.custom.adapter.controller.Controller;
+import com.phrase.custom.adapter.controller.ReactiveController;
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncResponse;
+import com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse;
+import com.phrase.custom.adapter.dto.response.UsageResponse;
+import com.phrase.custom.adapter.service.CharacterBudget.AccountUsage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.DONE;
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.FAILED;
+import static com.phrase.custom.adapter.dto.response.TranslateAsyncStatusResponse.AsyncStatus.RUNNING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"spring.main.web-application-type=reactive", "adapter.budget.tenants=refunded"})
+class ReactiveApplicationTests {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void reactiveStackIsSelectedByConfiguration() {
+        assertThat(applicationContext.getBeanNamesForType(ReactiveController.class)).hasSize(1);
+        assertThat(applicationContext.getBeanNamesForType(Controller.class)).isEmpty();
+        assertThat(((ReactiveWebServerApplicationContext) applicationContext).getWebServer()).isInstanceOf(NettyWebServer.class);
+    }
+
+    @Test
+    void statusAndLanguagesFollowTheContract() {
+        webTestClient.post().uri("/status").bodyValue(Map.of())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.status").isEqualTo("ok");
+
+        webTestClient.post().uri("/languages").bodyValue(Map.of())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.languagePairs.length()").isEqualTo(5);
+    }
+
+    @Test
+    void translateReturnsTranslatedSegments() {
+        webTestClient.post().uri("/translate").bodyValue(sampleTranslateRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.segments[0].translatedText").isEqualTo("Hello <b>{name}</b> [de]")
+                .jsonPath("$.segments[1].translatedText").isEqualTo("42")
+                .jsonPath("$.metadata.requestId").isEqualTo("reactive-1");
+    }
+
+    @Test
+    void asyncJobIsStartedPolledAndRetrieved() {
+        String jobId = startJob(sampleTranslateRequest());
+
+        assertThat(getStatus(jobId)).isEqualTo(RUNNING);
+
+        // The result of a running job is waited for, like in the servlet mode
+        webTestClient.get().uri("/translateAsyncResult/{jobId}", jobId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.segments[0].translatedText").isEqualTo("Hello <b>{name}</b> [de]");
+        assertThat(getStatus(jobId)).isEqualTo(DONE);
+    }
+
+    @Test
+    void cancelledJobIsRefunded() {
+        TranslateRequest translateRequest = new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Refund me", null)),
+                null,
+                Map.of("tenant", "refunded")
+        );
+        String jobId = startJob(translateRequest);
+        await().atMost(Duration.ofSeconds(2)).until(() -> getCharacters("refunded") == "Refund me".length());
+
+        webTestClient.delete().uri("/translateAsync/{jobId}", jobId)
+                .exchange()
+                .expectStatus().isOk();
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> getCharacters("refunded") == 0);
+        assertThat(getStatus(jobId)).isEqualTo(FAILED);
+    }
+
+    @Test
+    void unknownJobIsReportedAsError() {
+        webTestClient.get().uri("/translateAsyncStatus/{jobId}", "missing-job")
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody().jsonPath("$.error").value(error -> assertThat((String) error).contains("No translation job found with id 'missing-job'"));
+    }
+
+    private String startJob(TranslateRequest translateRequest) {
+        return webTestClient.post().uri("/translateAsync").bodyValue(translateRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TranslateAsyncResponse.class)
+                .returnResult().getResponseBody().id();
+    }
+
+    private TranslateAsyncStatusResponse.AsyncStatus getStatus(String jobId) {
+        return webTestClient.get().uri("/translateAsyncStatus/{jobId}", jobId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TranslateAsyncStatusResponse.class)
+                .returnResult().getResponseBody().status();
+    }
+
+    private long getCharacters(String tenant) {
+        return webTestClient.get().uri("/admin/usage")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UsageResponse.class)
+                .returnResult().getResponseBody().usages().stream()
+                .filter(usage -> usage.tenant().equals(tenant))
+                .mapToLong(AccountUsage::characters)
+                .sum();
+    }
+
+    private TranslateRequest sampleTranslateRequest() {
+        return new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Hello <b>{name}</b>", null), new Segment("2", "42", null)),
+                null,
+                Map.of("requestId", "reactive-1")
+        );
+    }
+}
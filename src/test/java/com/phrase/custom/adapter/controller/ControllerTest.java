@@ -6,11 +6,17 @@ import com.phrase.custom.adapter.dto.Locale;
 import com.phrase.custom.adapter.dto.request.TranslateRequest;
 import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
 import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.security.ApiKeyVerifier;
+import com.phrase.custom.adapter.service.AsyncJobRegistry;
+import com.phrase.custom.adapter.service.ClusterRouter;
+import com.phrase.custom.adapter.service.DrainCoordinator;
 import com.phrase.custom.adapter.service.TranslationService;
 import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import com.phrase.custom.adapter.tracing.SlowRequestLog;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -21,16 +27,20 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RejectedExecutionException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(Controller.class)
+@Import({AsyncJobRegistry.class, ClusterRouter.class, ApiKeyVerifier.class, SlowRequestLog.class})
 class ControllerTest {
 
     @Autowired
@@ -42,6 +52,9 @@ class ControllerTest {
     @MockitoBean
     private TranslationService translationService;
 
+    @MockitoBean
+    private DrainCoordinator drainCoordinator;
+
     @Test
     void languagesReturnsConfiguredLanguagePairs() throws Exception {
         mockMvc.perform(post("/languages")
@@ -122,6 +135,26 @@ class ControllerTest {
                 .andExpect(jsonPath("$.detail").value("upstream timeout"));
     }
 
+    @Test
+    void cancelledAsyncJobIsReportedAsFailed() throws Exception {
+        CompletableFuture<AsyncJobResult> future = new CompletableFuture<>();
+        when(translationService.translateAsync(any(TranslateRequest.class))).thenReturn(future);
+
+        String jobId = startAsyncJob();
+
+        mockMvc.perform(delete("/translateAsync/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("failed"))
+                .andExpect(jsonPath("$.detail").value("translation job cancelled"));
+
+        mockMvc.perform(get("/translateAsyncStatus/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("failed"))
+                .andExpect(jsonPath("$.detail").value("translation job cancelled"));
+
+        assertThat(future.isCancelled()).isTrue();
+    }
+
     @Test
     void translateAsyncStatusReturnsInternalServerErrorForUnknownJob() throws Exception {
         mockMvc.perform(get("/translateAsyncStatus/{jobId}", "missing-job"))
@@ -141,6 +174,24 @@ class ControllerTest {
                 .andExpect(jsonPath("$.error", containsString("Application busy: pool exhausted")));
     }
 
+    @Test
+    void drainingAdapterIsNotReadyAndRefusesAsyncJobs() throws Exception {
+        when(drainCoordinator.isDraining()).thenReturn(true);
+        doThrow(new RejectedExecutionException("adapter is shutting down")).when(drainCoordinator).checkAcceptingJobs();
+
+        mockMvc.perform(post("/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("not_ok"));
+
+        mockMvc.perform(post("/translateAsync")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTranslateRequest())))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.error", containsString("adapter is shutting down")));
+    }
+
     private String startAsyncJob() throws Exception {
         MvcResult mvcResult = mockMvc.perform(post("/translateAsync")
                         .contentType(MediaType.APPLICATION_JSON)
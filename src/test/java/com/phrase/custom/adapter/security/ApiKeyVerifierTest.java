@@ -0,0 +1,27 @@
+package com.phrase.custom.adapter.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiKeyVerifierTest {
+
+    @Test
+    void onlyConfiguredKeysAreValid() {
+        ApiKeyVerifier apiKeyVerifier = new ApiKeyVerifier(List.of("key-1", " key-2 "), "Authorization");
+
+        assertThat(apiKeyVerifier.isEnabled()).isTrue();
+        assertThat(apiKeyVerifier.isValid("key-1")).isTrue();
+        assertThat(apiKeyVerifier.isValid("Bearer key-2")).isTrue();
+        assertThat(apiKeyVerifier.isValid("key-3")).isFalse();
+        assertThat(apiKeyVerifier.isValid("")).isFalse();
+        assertThat(apiKeyVerifier.isValid(null)).isFalse();
+    }
+
+    @Test
+    void verificationIsDisabledWithoutKeys() {
+        assertThat(new ApiKeyVerifier(List.of(), "Authorization").isEnabled()).isFalse();
+    }
+}
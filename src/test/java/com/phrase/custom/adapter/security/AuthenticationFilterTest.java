@@ -0,0 +1,221 @@
+package com.phrase.custom.adapter.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationFilterTest {
+
+    private static final String BODY = "{\"metadata\":{}}";
+
+    @Test
+    void requestsPassWhenAuthenticationIsNotConfigured() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "");
+
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request(), new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void validApiKeyIsAccepted() throws Exception {
+        AuthenticationFilter filter = filter(List.of("key-1", "key-2"), "");
+
+        MockHttpServletRequest request = request();
+        request.addHeader("Authorization", "Bearer key-2");
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void invalidOrMissingApiKeyIsRejected() throws Exception {
+        AuthenticationFilter filter = filter(List.of("key-1"), "");
+
+        MockHttpServletRequest request = request();
+        request.addHeader("Authorization", "key-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, response, filterChain);
+
+        assertThat(filterChain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentAsString()).contains("invalid or missing api key");
+    }
+
+    @Test
+    void signedRequestIsAcceptedAndBodyIsReplayed() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "secret");
+
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        MockHttpServletRequest request = request();
+        request.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        request.addHeader(AuthenticationFilter.SIGNATURE_HEADER, sign("secret", timestamp + "\nPOST\n/translate\n" + BODY));
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        assertThat(new String(filterChain.getRequest().getInputStream().readAllBytes(), UTF_8)).isEqualTo(BODY);
+
+        // Non-blocking readers get the whole body through the read listener
+        ServletInputStream inputStream = filterChain.getRequest().getInputStream();
+        ByteArrayOutputStream asyncBody = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        inputStream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (inputStream.isReady() && !inputStream.isFinished()) {
+                    asyncBody.write(inputStream.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+        });
+        assertThat(allDataRead).isTrue();
+        assertThat(asyncBody.toString(UTF_8)).isEqualTo(BODY);
+    }
+
+    @Test
+    void signatureCoversQueryString() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "secret");
+
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        MockHttpServletRequest request = request();
+        request.setQueryString("dryRun=false");
+        request.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        request.addHeader(AuthenticationFilter.SIGNATURE_HEADER, sign("secret", timestamp + "\nPOST\n/translate?dryRun=false\n" + BODY));
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        MockHttpServletRequest tamperedRequest = request();
+        tamperedRequest.setQueryString("dryRun=true");
+        tamperedRequest.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        tamperedRequest.addHeader(AuthenticationFilter.SIGNATURE_HEADER, sign("secret", timestamp + "\nPOST\n/translate?dryRun=false\n" + BODY));
+        MockHttpServletResponse tamperedResponse = new MockHttpServletResponse();
+        MockFilterChain tamperedFilterChain = new MockFilterChain();
+        filter.doFilter(tamperedRequest, tamperedResponse, tamperedFilterChain);
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        assertThat(tamperedFilterChain.getRequest()).isNull();
+        assertThat(tamperedResponse.getStatus()).isEqualTo(401);
+    }
+
+    @Test
+    void requestWithWrongOrStaleSignatureIsRejected() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "secret");
+
+        String staleTimestamp = String.valueOf(System.currentTimeMillis() / 1000 - 3600);
+        MockHttpServletRequest staleRequest = request();
+        staleRequest.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, staleTimestamp);
+        staleRequest.addHeader(AuthenticationFilter.SIGNATURE_HEADER, sign("secret", staleTimestamp + "\nPOST\n/translate\n" + BODY));
+        MockHttpServletResponse staleResponse = new MockHttpServletResponse();
+        filter.doFilter(staleRequest, staleResponse, new MockFilterChain());
+
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        MockHttpServletRequest wrongRequest = request();
+        wrongRequest.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        wrongRequest.addHeader(AuthenticationFilter.SIGNATURE_HEADER, sign("other-secret", timestamp + "\nPOST\n/translate\n" + BODY));
+        MockHttpServletResponse wrongResponse = new MockHttpServletResponse();
+        filter.doFilter(wrongRequest, wrongResponse, new MockFilterChain());
+
+        assertThat(staleResponse.getStatus()).isEqualTo(401);
+        assertThat(wrongResponse.getStatus()).isEqualTo(401);
+        assertThat(wrongResponse.getContentAsString()).contains("invalid or missing request signature");
+    }
+
+    @Test
+    void signedRequestCannotBeReplayed() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "secret");
+
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String signature = sign("secret", timestamp + "\nPOST\n/translate\n" + BODY);
+        MockHttpServletRequest request = request();
+        request.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        request.addHeader(AuthenticationFilter.SIGNATURE_HEADER, signature);
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        MockHttpServletRequest replayedRequest = request();
+        replayedRequest.addHeader(AuthenticationFilter.TIMESTAMP_HEADER, timestamp);
+        replayedRequest.addHeader(AuthenticationFilter.SIGNATURE_HEADER, signature.toUpperCase());
+        MockHttpServletResponse replayedResponse = new MockHttpServletResponse();
+        MockFilterChain replayedFilterChain = new MockFilterChain();
+        filter.doFilter(replayedRequest, replayedResponse, replayedFilterChain);
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        assertThat(replayedFilterChain.getRequest()).isNull();
+        assertThat(replayedResponse.getStatus()).isEqualTo(401);
+        assertThat(replayedResponse.getContentAsString()).contains("request signature already used");
+    }
+
+    @Test
+    void oversizedBodyIsRejectedBeforeItIsRead() throws Exception {
+        AuthenticationFilter filter = filter(List.of(), "secret");
+
+        MockHttpServletRequest announcedRequest = request();
+        announcedRequest.setContent(new byte[2048]);
+        MockHttpServletResponse announcedResponse = new MockHttpServletResponse();
+        filter.doFilter(announcedRequest, announcedResponse, new MockFilterChain());
+
+        // No content length, the body is read only up to the limit
+        MockHttpServletRequest chunkedRequest = new MockHttpServletRequest("POST", "/translate") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunkedRequest.setContent(new byte[2048]);
+        MockHttpServletResponse chunkedResponse = new MockHttpServletResponse();
+        filter.doFilter(chunkedRequest, chunkedResponse, new MockFilterChain());
+
+        assertThat(announcedResponse.getStatus()).isEqualTo(413);
+        assertThat(announcedRequest.getInputStream().available()).isEqualTo(2048);
+        assertThat(chunkedResponse.getStatus()).isEqualTo(413);
+        assertThat(chunkedResponse.getContentAsString()).contains("Request body exceeds 1024 bytes");
+    }
+
+    private AuthenticationFilter filter(List<String> apiKeys, String hmacSecret) {
+        return new AuthenticationFilter(new ObjectMapper(), new ApiKeyVerifier(apiKeys, "Authorization"), hmacSecret, Duration.ofMinutes(5),
+                DataSize.ofKilobytes(1), true, 1.0, List.of("content-type"));
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/translate");
+        request.setContentType("application/json");
+        request.setContent(BODY.getBytes(UTF_8));
+        return request;
+    }
+
+    private String sign(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(UTF_8)));
+    }
+}
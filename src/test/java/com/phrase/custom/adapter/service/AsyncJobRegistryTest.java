@@ -0,0 +1,39 @@
+package com.phrase.custom.adapter.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class AsyncJobRegistryTest {
+
+    @TempDir
+    private Path jobStoreDir;
+
+    @Test
+    void loadedJobKeepsItsFileAndItsExpiry() {
+        AsyncJobRegistry firstRun = registry(Duration.ofSeconds(2));
+        firstRun.register("job-1", CompletableFuture.completedFuture(new AsyncJobResult(null, "translation failed")));
+        firstRun.persist();
+
+        AsyncJobRegistry secondRun = registry(Duration.ofHours(1));
+        assertThat(secondRun.get("job-1")).isCompletedWithValue(new AsyncJobResult(null, "translation failed"));
+        // The second run may die without persisting again
+        assertThat(jobStoreDir.resolve("job-1.json")).exists();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> secondRun.get("job-1") == null);
+        assertThat(jobStoreDir.resolve("job-1.json")).doesNotExist();
+        assertThat(registry(Duration.ofHours(1)).get("job-1")).isNull();
+    }
+
+    private AsyncJobRegistry registry(Duration retention) {
+        return new AsyncJobRegistry(new ObjectMapper(), Duration.ofMinutes(30), Duration.ofMinutes(10), retention, jobStoreDir.toString());
+    }
+}
@@ -0,0 +1,149 @@
+package com.phrase.custom.adapter.service;
+
+import com.phrase.custom.adapter.service.CharacterBudget.Account;
+import com.phrase.custom.adapter.service.CharacterBudget.AccountUsage;
+import com.phrase.custom.adapter.service.CharacterBudget.Charge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CharacterBudgetTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void budgetIsEnforcedPerTenant() {
+        CharacterBudget characterBudget = characterBudget(100, "big=1000", "");
+        Account small = characterBudget.getAccount(Map.of("tenant", "small"), "key", "deepl");
+        Account big = characterBudget.getAccount(Map.of("tenant", "big"), "key", "deepl");
+
+        Charge charge = characterBudget.charge(small, 60);
+        characterBudget.charge(big, 600);
+
+        assertThatThrownBy(() -> characterBudget.charge(small, 60))
+                .isInstanceOf(QuotaExceededException.class)
+                .hasMessageContaining("60 of 100 characters used, 60 requested");
+
+        characterBudget.refund(charge);
+        characterBudget.charge(small, 60);
+        characterBudget.charge(small, 40);
+        characterBudget.charge(big, 400);
+    }
+
+    @Test
+    void unknownTenantsShareTheDefaultAccount() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CharacterBudget characterBudget = new CharacterBudget(meterRegistry, 100, "big=1000", List.of("small"), Duration.ofDays(30), 0.9, "tenant", 100, "");
+
+        for (int i = 0; i < 10; i++) {
+            Account account = characterBudget.getAccount(Map.of("tenant", "made-up-" + i), "key", "deepl");
+            assertThat(account.tenant()).isEqualTo("default");
+            characterBudget.charge(account, 10);
+        }
+
+        assertThatThrownBy(() -> characterBudget.charge(characterBudget.getAccount(Map.of("tenant", "another"), "key", "deepl"), 1))
+                .isInstanceOf(QuotaExceededException.class);
+        assertThat(characterBudget.getAccount(Map.of("tenant", "big"), "key", "deepl").tenant()).isEqualTo("big");
+        assertThat(characterBudget.getUsages()).singleElement()
+                .satisfies(usage -> assertThat(usage.tenant()).isEqualTo("default"));
+        assertThat(meterRegistry.get("adapter.budget.characters").gauges()).hasSize(1);
+    }
+
+    @Test
+    void apiKeysShareTheTenantBudget() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CharacterBudget characterBudget = new CharacterBudget(meterRegistry, 100, "", List.of("small"), Duration.ofDays(30), 0.9, "tenant", 2, "");
+
+        for (int i = 0; i < 5; i++) {
+            characterBudget.charge(characterBudget.getAccount(Map.of("tenant", "small"), "key-" + i, "deepl"), 20);
+        }
+
+        assertThatThrownBy(() -> characterBudget.charge(characterBudget.getAccount(Map.of("tenant", "small"), "fresh-key", "deepl"), 1))
+                .isInstanceOf(QuotaExceededException.class)
+                .hasMessageContaining("100 of 100 characters used");
+        assertThat(characterBudget.getUsages())
+                .extracting(AccountUsage::apiKey, AccountUsage::characters)
+                .containsExactlyInAnyOrder(
+                        tuple(characterBudget.getAccount(Map.of("tenant", "small"), "key-0", "deepl").apiKey(), 20L),
+                        tuple(characterBudget.getAccount(Map.of("tenant", "small"), "key-1", "deepl").apiKey(), 20L),
+                        tuple("other", 60L));
+        assertThat(meterRegistry.get("adapter.budget.characters").gauge().value()).isEqualTo(100);
+    }
+
+    @Test
+    void concurrentChargesDoNotOverrunTheBudget() throws Exception {
+        CharacterBudget characterBudget = characterBudget(1000, "", "");
+        Account account = characterBudget.getAccount(Map.of("tenant", "small"), "key", "deepl");
+        AtomicInteger charged = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 2000; i++) {
+                executor.execute(() -> {
+                    try {
+                        characterBudget.charge(account, 1);
+                        charged.incrementAndGet();
+                    } catch (QuotaExceededException e) {
+                        // Expected once the budget is used up
+                    }
+                });
+            }
+        }
+
+        assertThat(charged).hasValue(1000);
+        assertThat(characterBudget.getUsages()).singleElement()
+                .satisfies(usage -> assertThat(usage.characters()).isEqualTo(1000));
+    }
+
+    @Test
+    void apiKeyIsOnlyKeptAsFingerprint() {
+        CharacterBudget characterBudget = characterBudget(0, "", "");
+
+        Account account = characterBudget.getAccount(null, "secret-deepl-key", "deepl");
+
+        assertThat(account.tenant()).isEqualTo("default");
+        assertThat(account.apiKey()).hasSize(8).doesNotContain("secret");
+    }
+
+    @Test
+    void usageIsExposedAsMetric() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CharacterBudget characterBudget = new CharacterBudget(meterRegistry, 0, "", List.of("acme"), Duration.ofDays(30), 0.9, "tenant", 100, "");
+
+        characterBudget.charge(characterBudget.getAccount(Map.of("tenant", "acme"), null, "loopback"), 42);
+
+        assertThat(meterRegistry.get("adapter.budget.characters").tag("tenant", "acme").tag("engine", "loopback").gauge().value())
+                .isEqualTo(42);
+    }
+
+    @Test
+    void usageSurvivesRestart() {
+        String storeFile = tempDir.resolve("usage.tsv").toString();
+        CharacterBudget characterBudget = characterBudget(100, "", storeFile);
+        characterBudget.charge(characterBudget.getAccount(Map.of("tenant", "acme"), "key", "deepl"), 90);
+        characterBudget.persist();
+
+        CharacterBudget restarted = characterBudget(100, "", storeFile);
+
+        assertThat(restarted.getUsages()).singleElement()
+                .satisfies(usage -> assertThat(usage.characters()).isEqualTo(90));
+        assertThatThrownBy(() -> restarted.charge(restarted.getAccount(Map.of("tenant", "acme"), "key", "deepl"), 20))
+                .isInstanceOf(QuotaExceededException.class);
+    }
+
+    private CharacterBudget characterBudget(long maxCharacters, String tenantLimits, String storeFile) {
+        return new CharacterBudget(new SimpleMeterRegistry(), maxCharacters, tenantLimits, List.of("small", "acme"), Duration.ofDays(30), 0.9, "tenant", 100, storeFile);
+    }
+}
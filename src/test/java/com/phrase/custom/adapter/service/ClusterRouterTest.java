@@ -0,0 +1,79 @@
+package com.phrase.custom.adapter.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterRouterTest {
+
+    private final AtomicReference<String> ownerRequest = new AtomicReference<>();
+
+    private HttpServer owner;
+
+    private ClusterRouter clusterRouter;
+
+    @BeforeEach
+    void startOwner() throws IOException {
+        owner = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        owner.createContext("/", exchange -> {
+            ownerRequest.set(exchange.getRequestURI().getRawPath() + "?" + exchange.getRequestURI().getRawQuery()
+                    + " " + exchange.getRequestHeaders().getFirst("X-Signature"));
+            byte[] body = "owner".getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        owner.start();
+
+        clusterRouter = new ClusterRouter("node1", "node1=http://10.0.0.1:8080,node2=http://127.0.0.1:" + owner.getAddress().getPort(),
+                Duration.ofSeconds(5), List.of("X-Signature"));
+    }
+
+    @AfterEach
+    void stopOwner() {
+        owner.stop(0);
+    }
+
+    @Test
+    void queryStringIsForwardedUnchanged() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/translateAsyncStatus/node2.job");
+        request.setQueryString("note=a%20b&x=%7B1%7D");
+        request.addHeader("X-Signature", "abc");
+
+        ResponseEntity<String> response = clusterRouter.forward("node2.job", request, String.class);
+
+        assertThat(response.getBody()).isEqualTo("owner");
+        assertThat(ownerRequest).hasValue("/translateAsyncStatus/node2.job?note=a%20b&x=%7B1%7D abc");
+    }
+
+    @Test
+    void forwardedHeaderIsOnlyTrustedFromNodes() {
+        MockHttpServletRequest clientRequest = new MockHttpServletRequest("GET", "/translateAsyncStatus/node2.job");
+        clientRequest.setRemoteAddr("192.0.2.7");
+        clientRequest.addHeader(ClusterRouter.FORWARDED_HEADER, "true");
+
+        MockHttpServletRequest nodeRequest = new MockHttpServletRequest("GET", "/translateAsyncStatus/node2.job");
+        nodeRequest.setRemoteAddr("10.0.0.1");
+        nodeRequest.addHeader(ClusterRouter.FORWARDED_HEADER, "true");
+
+        assertThat(clusterRouter.isRemote("node2.job", clientRequest)).isTrue();
+        assertThat(clusterRouter.isRemote("node2.job", nodeRequest)).isFalse();
+        assertThat(clusterRouter.isRemote("node1.job", clientRequest)).isFalse();
+    }
+}
@@ -0,0 +1,89 @@
+package com.phrase.custom.adapter.service;
+
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.service.SegmentProcessor.PreparedSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentProcessorTest {
+
+    private final SegmentProcessor segmentProcessor = new SegmentProcessor();
+
+    @Test
+    void tagsAndPlaceholdersAreReplacedByTokensAndRestored() {
+        PreparedSegment preparedSegment = prepare("Hello <b>{name}</b>, you have %1$d new {{items}} at ${site}");
+
+        assertThat(preparedSegment.translatable()).isTrue();
+        assertThat(preparedSegment.text()).isEqualTo("Hello ⟦0⟧⟦1⟧⟦2⟧, you have ⟦3⟧ new ⟦4⟧ at ⟦5⟧");
+        assertThat(preparedSegment.placeholders()).containsExactly("<b>", "{name}", "</b>", "%1$d", "{{items}}", "${site}");
+
+        String restored = segmentProcessor.restore(preparedSegment, "Hallo ⟦0⟧⟦1⟧⟦2⟧, Sie haben ⟦3⟧ neue ⟦4⟧ auf ⟦5⟧");
+        assertThat(restored).isEqualTo("Hallo <b>{name}</b>, Sie haben %1$d neue {{items}} auf ${site}");
+    }
+
+    @Test
+    void whitespaceIsNormalizedAndOuterWhitespaceKept() {
+        PreparedSegment preparedSegment = prepare("\n  Hello \t  world  ");
+
+        assertThat(preparedSegment.text()).isEqualTo("Hello world");
+        assertThat(segmentProcessor.restore(preparedSegment, "Hallo Welt")).isEqualTo("\n  Hallo Welt  ");
+    }
+
+    @Test
+    void urlsAreProtectedWithoutTrailingPunctuation() {
+        PreparedSegment preparedSegment = prepare("See https://phrase.com/docs?a=1.");
+
+        assertThat(preparedSegment.text()).isEqualTo("See ⟦0⟧.");
+        assertThat(preparedSegment.placeholders()).containsExactly("https://phrase.com/docs?a=1");
+    }
+
+    @Test
+    void segmentsWithoutLettersAreNotTranslated() {
+        assertThat(prepare("1,234.56").translatable()).isFalse();
+        assertThat(prepare(" https://phrase.com ").translatable()).isFalse();
+        assertThat(prepare("<br/><b></b>").translatable()).isFalse();
+        assertThat(prepare("{count} %").translatable()).isFalse();
+        assertThat(prepare("   ").translatable()).isFalse();
+
+        PreparedSegment preparedSegment = prepare(" 42 ");
+        assertThat(segmentProcessor.restore(preparedSegment, "ignored")).isEqualTo(" 42 ");
+    }
+
+    @Test
+    void textThatOnlyLooksLikePlaceholdersIsKept() {
+        PreparedSegment preparedSegment = prepare("50% off if a < b {not a placeholder}");
+
+        assertThat(preparedSegment.text()).isEqualTo("50% off if a < b {not a placeholder}");
+        assertThat(preparedSegment.placeholders()).isEmpty();
+    }
+
+    @Test
+    void placeholdersDroppedByTheEngineAreAppended() {
+        PreparedSegment preparedSegment = prepare("Press <kbd>Enter</kbd>");
+
+        assertThat(segmentProcessor.restore(preparedSegment, "Drücken Sie ⟦0⟧Enter")).isEqualTo("Drücken Sie <kbd>Enter</kbd>");
+    }
+
+    @Test
+    void tokenBracketsInTheTextAreProtected() {
+        PreparedSegment preparedSegment = prepare("Hello ⟦0⟧ <b>world</b>");
+
+        assertThat(preparedSegment.text()).isEqualTo("Hello ⟦0⟧0⟦1⟧ ⟦2⟧world⟦3⟧");
+        assertThat(preparedSegment.placeholders()).containsExactly("⟦", "⟧", "<b>", "</b>");
+        assertThat(segmentProcessor.restore(preparedSegment, "Hallo ⟦0⟧0⟦1⟧ ⟦2⟧Welt⟦3⟧")).isEqualTo("Hallo ⟦0⟧ <b>Welt</b>");
+    }
+
+    @Test
+    void segmentsWithoutTextAreNotTranslated() {
+        List<PreparedSegment> preparedSegments = segmentProcessor.prepare(List.of(new Segment("1", null, null), new Segment("2", "Hello", null)));
+
+        assertThat(preparedSegments).extracting(PreparedSegment::translatable).containsExactly(false, true);
+    }
+
+    private PreparedSegment prepare(String text) {
+        return segmentProcessor.prepare(text, new StringBuilder());
+    }
+}
@@ -0,0 +1,121 @@
+package com.phrase.custom.adapter.service;
+
+import com.phrase.custom.adapter.config.ApplicationConfig;
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TranslationMemoryTest {
+
+    private static final String TMX = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <tmx version="1.4">
+              <header srclang="en-US" datatype="plaintext" segtype="sentence" adminlang="en" o-tmf="test" creationtool="test" creationtoolversion="1"/>
+              <body>
+                <tu>
+                  <tuv xml:lang="en-US"><seg>Click <bpt i="1">&lt;b&gt;</bpt>here<ept i="1">&lt;/b&gt;</ept> to  continue</seg></tuv>
+                  <tuv xml:lang="de-DE"><seg>Klicken Sie <bpt i="1">&lt;b&gt;</bpt>hier<ept i="1">&lt;/b&gt;</ept>, um fortzufahren</seg></tuv>
+                  <tuv xml:lang="cs-CZ"><seg>Pokračujte kliknutím <bpt i="1">&lt;b&gt;</bpt>sem<ept i="1">&lt;/b&gt;</ept></seg></tuv>
+                </tu>
+                <tu>
+                  <tuv xml:lang="en-US"><seg>Hello {name}</seg></tuv>
+                  <tuv xml:lang="de-DE"><seg>Hallo {user}</seg></tuv>
+                </tu>
+              </body>
+            </tmx>
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void tmxIsImportedWithNormalizedTextsAndLocales() throws Exception {
+        Path indexFile = tempDir.resolve("tm.idx");
+        Path tmxFile = Files.writeString(tempDir.resolve("memory.tmx"), TMX, UTF_8);
+
+        try (TranslationMemoryImporter importer = new TranslationMemoryImporter(indexFile)) {
+            importer.importFile(tmxFile);
+            assertThat(importer.build()).isEqualTo(2);
+        }
+
+        TranslationMemoryIndex index = TranslationMemoryIndex.open(indexFile);
+        assertThat(index.lookup("en_us", "de_de", "Click ⟦0⟧here⟦1⟧ to continue")).isEqualTo("Klicken Sie ⟦0⟧hier⟦1⟧, um fortzufahren");
+        assertThat(index.lookup("EN-us", "cs-cz", "Click ⟦0⟧here⟦1⟧ to continue")).isEqualTo("Pokračujte kliknutím ⟦0⟧sem⟦1⟧");
+        assertThat(index.lookup("de_de", "en_us", "Klicken Sie ⟦0⟧hier⟦1⟧, um fortzufahren")).isNull();
+        // The placeholder of the translation is not in the source
+        assertThat(index.lookup("en_us", "de_de", "Hello ⟦0⟧")).isNull();
+    }
+
+    @Test
+    void lookupWorksAcrossChunks() throws Exception {
+        Path indexFile = tempDir.resolve("tm.idx");
+        try (TranslationMemoryImporter importer = new TranslationMemoryImporter(indexFile)) {
+            for (int i = 0; i < 5000; i++) {
+                importer.add("en", "de", "Sentence number %d".formatted(i), "Satz Nummer %d".formatted(i));
+            }
+            importer.add("en", "de", "Sentence number 7", "Satz Nr. 7");
+            assertThat(importer.build()).isEqualTo(5000);
+        }
+
+        TranslationMemoryIndex index = TranslationMemoryIndex.open(indexFile, 12);
+        assertThat(Files.size(indexFile)).isGreaterThan(20 * 4096);
+        assertThat(index.size()).isEqualTo(5000);
+        for (int i = 0; i < 5000; i++) {
+            assertThat(index.lookup("en", "de", "Sentence number %d".formatted(i))).isEqualTo(i == 7 ? "Satz Nr. 7" : "Satz Nummer %d".formatted(i));
+        }
+        assertThat(index.lookup("en", "de", "Sentence number 5000")).isNull();
+    }
+
+    @Test
+    void translationMemoryIsServedBeforeEngineAndSwappedWithoutRestart() throws Exception {
+        Path indexFile = tempDir.resolve("tm.idx");
+        buildTsv(indexFile, "en\tde\tHello\tHallo\n");
+        TranslationMemory translationMemory = new TranslationMemory(indexFile.toString());
+        CharacterBudget characterBudget = new CharacterBudget(new SimpleMeterRegistry(), 0, "", List.of(), Duration.ofDays(30), 0.9, "tenant", 100, "");
+        TranslationService translationService = new TranslationService(new ApplicationConfig().getAsyncExecutor(), new SegmentProcessor(), characterBudget, translationMemory);
+        TranslateRequest request = new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", " Hello ", null), new Segment("2", "World <br/>", null)),
+                null,
+                Map.of()
+        );
+
+        TranslateResponse response = translationService.translate(request);
+
+        assertThat(response.segments()).extracting(TranslateResponse.TranslatedSegment::translatedText)
+                .containsExactly(" Hallo ", "World <br/> [de]");
+        assertThat(characterBudget.getUsages()).singleElement()
+                .satisfies(usage -> assertThat(usage.characters()).isEqualTo("World ⟦0⟧".length()));
+
+        buildTsv(indexFile, "en\tde\tHello\tGuten Tag\nen\tde\tWorld <br/>\tWelt <br/>\n");
+        translationMemory.reload();
+
+        assertThat(translationService.translate(request).segments()).extracting(TranslateResponse.TranslatedSegment::translatedText)
+                .containsExactly(" Guten Tag ", "Welt <br/>");
+    }
+
+    private void buildTsv(Path indexFile, String tsv) throws IOException, XMLStreamException {
+        Path tsvFile = Files.writeString(tempDir.resolve("memory.tsv"), tsv, UTF_8);
+        try (TranslationMemoryImporter importer = new TranslationMemoryImporter(indexFile)) {
+            importer.importFile(tsvFile);
+            importer.build();
+        }
+    }
+}
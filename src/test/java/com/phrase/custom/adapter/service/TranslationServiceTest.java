@@ -1,22 +1,38 @@
 package com.phrase.custom.adapter.service;
 
+import com.phrase.custom.adapter.config.ApplicationConfig;
 import com.phrase.custom.adapter.dto.Locale;
 import com.phrase.custom.adapter.dto.request.TranslateRequest;
 import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
 import com.phrase.custom.adapter.dto.response.TranslateResponse;
 import com.phrase.custom.adapter.service.TranslationService.AsyncJobResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 class TranslationServiceTest {
 
-    private final TranslationService translationService = new TranslationService();
+    private final ThreadPoolTaskExecutor threadPoolTaskExecutor = new ApplicationConfig().getAsyncExecutor();
+
+    private final CharacterBudget characterBudget = new CharacterBudget(new SimpleMeterRegistry(), 0, "limited=15", List.of(), Duration.ofDays(30), 0.9, "tenant", 100, "");
+
+    private final TranslationService translationService = new TranslationService(threadPoolTaskExecutor, new SegmentProcessor(), characterBudget, new TranslationMemory(""));
+
+    @AfterEach
+    void shutdownExecutor() {
+        threadPoolTaskExecutor.shutdown();
+    }
 
     @Test
     void translateReturnsTranslatedSegmentsAndPreservesMetadata() {
@@ -32,6 +48,57 @@ class TranslationServiceTest {
         assertThat(response.segments().get(1).translatedText()).isEqualTo("World [de]");
     }
 
+    @Test
+    void translateProtectsTagsAndSkipsSegmentsNeedingNoTranslation() {
+        TranslateRequest request = new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(
+                        new Segment("1", " Click  <b>here</b> ", null),
+                        new Segment("2", "1,234.50", null),
+                        new Segment("3", "https://phrase.com/", null),
+                        new Segment("4", null, null)
+                ),
+                null,
+                null
+        );
+
+        TranslateResponse response = translationService.translate(request);
+
+        assertThat(response.segments()).extracting(TranslateResponse.TranslatedSegment::translatedText)
+                .containsExactly(" Click <b>here</b> [de] ", "1,234.50", "https://phrase.com/", null);
+    }
+
+    @Test
+    void repeatedTextsAreChargedOnceAndBudgetIsEnforced() {
+        TranslateRequest request = new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Hello", null), new Segment("2", "Hello", null), new Segment("3", "World", null)),
+                null,
+                Map.of("tenant", "limited")
+        );
+
+        TranslateResponse response = translationService.translate(request);
+
+        assertThat(response.segments()).extracting(TranslateResponse.TranslatedSegment::translatedText)
+                .containsExactly("Hello [de]", "Hello [de]", "World [de]");
+        assertThat(characterBudget.getUsages()).singleElement()
+                .satisfies(usage -> assertThat(usage.characters()).isEqualTo(10));
+
+        assertThatThrownBy(() -> translationService.translate(request))
+                .isInstanceOf(QuotaExceededException.class)
+                .hasMessageContaining("character budget of tenant 'limited' exhausted");
+    }
+
+    @Test
+    void phraseLocalesAreMappedToDeepLTargetLanguages() {
+        assertThat(TranslationService.getDeepLTargetLanguage("de")).isEqualTo("DE");
+        assertThat(TranslationService.getDeepLTargetLanguage("en")).isEqualTo("EN-US");
+        assertThat(TranslationService.getDeepLTargetLanguage("zh_tw")).isEqualTo("ZH-HANT");
+        assertThat(TranslationService.getDeepLTargetLanguage("pt_br")).isEqualTo("PT-BR");
+    }
+
     @Test
     void translateAsyncCompletesWithTranslatedResponse() throws Exception {
         TranslateRequest request = sampleRequest();
@@ -45,6 +112,30 @@ class TranslationServiceTest {
         assertThat(result.translateResponse().metadata()).isEqualTo(Map.of("requestId", "sync-1"));
     }
 
+    @Test
+    void cancellingAsyncJobInterruptsTranslationAndFreesExecutor() {
+        CompletableFuture<AsyncJobResult> future = translationService.translateAsync(sampleRequest());
+        await().atMost(Duration.ofSeconds(2)).until(() -> threadPoolTaskExecutor.getActiveCount() == 1);
+
+        future.cancel(true);
+
+        assertThat(future.isCancelled()).isTrue();
+        // The translation sleeps for a second, an interrupted one frees the thread well before that
+        await().atMost(Duration.ofMillis(500)).until(() -> threadPoolTaskExecutor.getActiveCount() == 0);
+        assertThat(threadPoolTaskExecutor.getThreadPoolExecutor().getCompletedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncJobExceedingDeadlineFailsWithDetail() throws Exception {
+        CompletableFuture<AsyncJobResult> future = translationService.translateAsync(sampleRequest())
+                .orTimeout(100, TimeUnit.MILLISECONDS);
+
+        AsyncJobResult result = future.exceptionally(AsyncJobResult::failed).get(2, TimeUnit.SECONDS);
+
+        assertThat(result.translateResponse()).isNull();
+        assertThat(result.failureDetail()).isEqualTo("translation job exceeded its deadline");
+    }
+
     private TranslateRequest sampleRequest() {
         return new TranslateRequest(
                 new Locale("en"),
@@ -0,0 +1,118 @@
+package com.phrase.custom.adapter.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phrase.custom.adapter.dto.Locale;
+import com.phrase.custom.adapter.dto.request.TranslateRequest;
+import com.phrase.custom.adapter.dto.request.TranslateRequest.Segment;
+import com.phrase.custom.adapter.dto.response.SlowRequestsResponse;
+import com.phrase.custom.adapter.dto.response.TranslateResponse;
+import com.phrase.custom.adapter.security.ApiKeyVerifier;
+import com.phrase.custom.adapter.security.AuthenticationFilter;
+import com.phrase.custom.adapter.tracing.SlowRequestLog.SlowRequest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"adapter.tracing.enabled=true", "adapter.tracing.slow-requests=2"})
+class RequestTracingTest {
+
+    @LocalServerPort
+    private int port;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void translatePhasesAreReportedInHeaderJfrAndSlowRequests() throws Exception {
+        RestClient client = RestClient.create("http://localhost:" + port);
+        Path recordingFile = tempDir.resolve("tracing.jfr");
+
+        ResponseEntity<TranslateResponse> response;
+        try (Recording recording = new Recording()) {
+            recording.enable(PhaseEvent.NAME);
+            recording.enable(RequestEvent.NAME);
+            recording.start();
+            response = client.post().uri("/translate").body(sampleTranslateRequest()).retrieve().toEntity(TranslateResponse.class);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        assertThat(response.getBody().segments().getFirst().translatedText()).isEqualTo("Hello [de]");
+        assertThat(response.getHeaders().getFirst(ServerTimingAdvice.SERVER_TIMING_HEADER))
+                .matches("auth;dur=\\d+\\.\\d{3}, bind;dur=\\d+\\.\\d{3}, log;dur=\\d+\\.\\d{3}, client;dur=\\d+\\.\\d{3}, prepare;dur=\\d+\\.\\d{3}, "
+                        + "engine;dur=\\d+\\.\\d{3}, assemble;dur=\\d+\\.\\d{3}, total;dur=1\\d{3}\\.\\d{3}");
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals(PhaseEvent.NAME))
+                .extracting(event -> event.getString("phase"))
+                .containsExactly("auth", "bind", "log", "client", "prepare", "engine", "assemble", "serialize");
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals(RequestEvent.NAME)).singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("path")).isEqualTo("/translate");
+                    assertThat(event.getInt("status")).isEqualTo(200);
+                    assertThat(event.getDuration().toMillis()).isGreaterThanOrEqualTo(1000);
+                });
+
+        for (int i = 0; i < 3; i++) {
+            client.get().uri("/admin/usage").retrieve().toBodilessEntity();
+        }
+        List<SlowRequest> slowRequests = client.get().uri("/admin/slowRequests").retrieve().body(SlowRequestsResponse.class).slowRequests();
+        assertThat(slowRequests).hasSize(2);
+        assertThat(slowRequests.getFirst()).satisfies(slowRequest -> {
+            assertThat(slowRequest.path()).isEqualTo("/translate");
+            assertThat(slowRequest.totalMillis()).isGreaterThanOrEqualTo(1000);
+            assertThat(slowRequest.phases()).containsKeys("auth", "bind", "log", "client", "prepare", "engine", "assemble", "serialize");
+        });
+    }
+
+    @Test
+    void rejectedRequestHasAuthPhase() throws Exception {
+        SlowRequestLog slowRequestLog = new SlowRequestLog(1);
+        AuthenticationFilter authenticationFilter = new AuthenticationFilter(new ObjectMapper(), new ApiKeyVerifier(List.of("key"), "Authorization"), "",
+                Duration.ofMinutes(5), DataSize.ofMegabytes(10), false, 0, List.of());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new RequestTracingFilter(slowRequestLog, true).doFilter(new MockHttpServletRequest("POST", "/translate"), response,
+                (request, filteredResponse) -> authenticationFilter.doFilter(request, filteredResponse, new MockFilterChain()));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(slowRequestLog.getSlowest()).singleElement()
+                .satisfies(slowRequest -> assertThat(slowRequest.phases()).containsOnlyKeys("auth"));
+    }
+
+    @Test
+    void untracedPhasesAreNotRecorded() {
+        long phaseStart = RequestTrace.start();
+
+        assertThat(phaseStart).isZero();
+        assertThat(RequestTrace.end("engine", phaseStart)).isZero();
+    }
+
+    private static TranslateRequest sampleTranslateRequest() {
+        return new TranslateRequest(
+                new Locale("en"),
+                new Locale("de"),
+                List.of(new Segment("1", "Hello", null)),
+                null,
+                Map.of("requestId", "tracing-1")
+        );
+    }
+}